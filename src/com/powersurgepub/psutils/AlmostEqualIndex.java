@@ -0,0 +1,253 @@
+/*
+ * Copyright 2026 - 2026 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psutils;
+
+  import java.util.*;
+
+/**
+   An index of strings that can quickly find all of those that are
+   almost equal to a given string, as defined by StringUtils.almostEqual,
+   without comparing the given string to every one of them. <p>
+
+   Each string is reduced to a skeleton: its letters and digits, in
+   lower-case, without vowels. Two strings can only be almost equal if one
+   skeleton is a prefix of the other, or, by the Street/St. rule, if the
+   skeletons share the same first and last characters. The strings are
+   bucketed accordingly, so that a search need only consider the few
+   strings found in the matching buckets, each of which is then verified
+   using StringUtils.almostEqual. <p>
+ */
+public class AlmostEqualIndex {
+
+  private ArrayList<String> strings = new ArrayList<String>();
+
+  /** Strings with at least two skeleton characters, by the first two. */
+  private HashMap<Integer, IntList> byFirstTwo
+      = new HashMap<Integer, IntList>();
+
+  /** Strings with at least two skeleton characters, by first and last. */
+  private HashMap<Integer, IntList> byFirstLast
+      = new HashMap<Integer, IntList>();
+
+  /** Strings with at least one skeleton character, by the first. */
+  private HashMap<Integer, IntList> byFirst
+      = new HashMap<Integer, IntList>();
+
+  /** Strings with at least one skeleton character, by the last. */
+  private HashMap<Integer, IntList> byLast
+      = new HashMap<Integer, IntList>();
+
+  /** Strings with exactly one skeleton character, by that character. */
+  private HashMap<Integer, IntList> singles
+      = new HashMap<Integer, IntList>();
+
+  /** Strings with no skeleton characters at all. */
+  private IntList   empties = new IntList();
+
+  /**
+    Creates a new empty index.
+   */
+  public AlmostEqualIndex () {
+
+  }
+
+  /**
+    Reduce a string to the characters that StringUtils.almostEqual will
+    never skip over: letters and digits, other than vowels, in lower-case.
+
+    @return The skeleton of the string.
+    @param s The string to be reduced.
+   */
+  public static String skeleton (String s) {
+    StringBuilder skeleton = new StringBuilder (s.length());
+    for (int i = 0; i < s.length(); i++) {
+      char c = Character.toLowerCase (s.charAt (i));
+      if (Character.isLetterOrDigit (c)
+          && StringUtils.VOWELS.indexOf (c) < 0) {
+        skeleton.append (c);
+      }
+    }
+    return skeleton.toString();
+  }
+
+  /**
+    Adds another string to the index.
+
+    @return The index number assigned to the string. Strings are numbered
+            from zero, in the order they are added.
+    @param s The string to be added.
+   */
+  public int add (String s) {
+    int n = strings.size();
+    strings.add (s);
+    String skeleton = skeleton (s);
+    int length = skeleton.length();
+    if (length == 0) {
+      empties.add (n);
+    } else {
+      char first = skeleton.charAt (0);
+      char last = skeleton.charAt (length - 1);
+      bucket (byFirst, first).add (n);
+      bucket (byLast, last).add (n);
+      if (length == 1) {
+        bucket (singles, first).add (n);
+      } else {
+        bucket (byFirstTwo, pair (first, skeleton.charAt (1))).add (n);
+        bucket (byFirstLast, pair (first, last)).add (n);
+      }
+    }
+    return n;
+  }
+
+  /**
+    Finds all of the indexed strings that are almost equal to the
+    given string.
+
+    @return The index numbers of the matching strings, in ascending order.
+    @param s The string to be matched.
+   */
+  public int[] indexesOf (String s) {
+    String skeleton = skeleton (s);
+    int length = skeleton.length();
+    IntList candidates = new IntList();
+    if (length == 0) {
+
+      // Might match anything: try them all
+      for (int n = 0; n < strings.size(); n++) {
+        candidates.add (n);
+      }
+    } else {
+      char first = skeleton.charAt (0);
+      char last = skeleton.charAt (length - 1);
+      candidates.addAll (empties);
+      if (length == 1) {
+        candidates.addAll (lookUp (byFirst, first));
+        candidates.addAll (lookUp (byLast, first));
+      } else {
+        candidates.addAll (lookUp (singles, first));
+        candidates.addAll (lookUp (singles, last));
+        candidates.addAll (lookUp (byFirstTwo, pair (first, skeleton.charAt (1))));
+        candidates.addAll (lookUp (byFirstLast, pair (first, last)));
+      }
+      candidates.sort();
+    }
+
+    // Now verify each distinct candidate
+    IntList matches = new IntList();
+    int prior = -1;
+    for (int k = 0; k < candidates.size(); k++) {
+      int n = candidates.get (k);
+      if (n != prior
+          && StringUtils.almostEqual (s, get (n))) {
+        matches.add (n);
+      }
+      prior = n;
+    }
+    return matches.toArray();
+  }
+
+  /**
+    Finds the first indexed string that is almost equal to the given string.
+
+    @return The index number of the first matching string, or -1 if none
+            match.
+    @param s The string to be matched.
+   */
+  public int indexOf (String s) {
+    int[] matches = indexesOf (s);
+    if (matches.length == 0) {
+      return -1;
+    } else {
+      return matches [0];
+    }
+  }
+
+  public String get (int n) {
+    return strings.get (n);
+  }
+
+  public int size () {
+    return strings.size();
+  }
+
+  private static Integer pair (char c1, char c2) {
+    return Integer.valueOf ((c1 << 16) | c2);
+  }
+
+  private static IntList bucket (HashMap<Integer, IntList> map, char c) {
+    return bucket (map, Integer.valueOf (c));
+  }
+
+  private static IntList bucket (HashMap<Integer, IntList> map, Integer key) {
+    IntList list = map.get (key);
+    if (list == null) {
+      list = new IntList();
+      map.put (key, list);
+    }
+    return list;
+  }
+
+  private static IntList lookUp (HashMap<Integer, IntList> map, char c) {
+    return lookUp (map, Integer.valueOf (c));
+  }
+
+  private static IntList lookUp (HashMap<Integer, IntList> map, Integer key) {
+    return map.get (key);
+  }
+
+  /**
+    A growable list of int values, kept without boxing each one.
+   */
+  private static class IntList {
+
+    private int[] values = new int [4];
+    private int   size = 0;
+
+    void add (int value) {
+      if (size >= values.length) {
+        values = Arrays.copyOf (values, values.length * 2);
+      }
+      values [size] = value;
+      size++;
+    }
+
+    void addAll (IntList other) {
+      if (other != null) {
+        for (int i = 0; i < other.size; i++) {
+          add (other.values [i]);
+        }
+      }
+    }
+
+    void sort () {
+      Arrays.sort (values, 0, size);
+    }
+
+    int get (int i) {
+      return values [i];
+    }
+
+    int size () {
+      return size;
+    }
+
+    int[] toArray () {
+      return Arrays.copyOf (values, size);
+    }
+  }
+
+}
@@ -18,6 +18,7 @@ package com.powersurgepub.psutils;
 
   import java.math.*;
   import java.text.*;
+  import java.time.*;
   import java.util.*;
  
 /**
@@ -29,6 +30,15 @@ public class CalcTransaction {
   
   public final static NumberFormat CURRENCY_FORMAT
       = NumberFormat.getCurrencyInstance(Locale.US);
+  
+  /**
+   Parses transaction dates, remembering recent ones, since many 
+   transactions share the same date.
+   */
+  private final static DateParser DATE_PARSER = new DateParser ("ymd");
+  static {
+    DATE_PARSER.setCacheSize (1024);
+  }
 
   /**
    The date on which the financial transaction occurred, in Year-Month-Day format.
@@ -123,6 +133,20 @@ public class CalcTransaction {
     return date;
   }
   
+  /**
+    Returns the date for this event transaction.
+ 
+    @return The date for this event transaction, or null if the
+            transaction has no date.
+   */
+  public LocalDate getLocalDate () {
+    if (hasDateWithData()) {
+      return DATE_PARSER.parseLocalDate (date);
+    } else {
+      return null;
+    }
+  }
+  
   /**
    Sets the check number for this event transaction. 
   
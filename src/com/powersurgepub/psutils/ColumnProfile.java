@@ -0,0 +1,448 @@
+/*
+ * Copyright 2026 - 2026 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psutils;
+
+  import java.util.*;
+
+/**
+   A summary of the values found in one column of data, accumulated one
+   value at a time using StringPattern: how often each pattern occurs,
+   how long the values are, and what type of data the column appears to
+   hold. <p>
+
+   Profiles of different portions of the same column may be merged, so
+   that a column can be profiled in pieces, as ColumnProfiler does. <p>
+ */
+public class ColumnProfile {
+
+  public static final int     EMPTY_TYPE    = 0;
+  public static final int     INTEGER_TYPE  = 1;
+  public static final int     DECIMAL_TYPE  = 2;
+  public static final int     DATE_TYPE     = 3;
+  public static final int     CODE_TYPE     = 4;
+  public static final int     TEXT_TYPE     = 5;
+
+  public static final String[] TYPE_NAMES = {
+    "Empty", "Integer", "Decimal", "Date", "Code", "Text"
+  };
+
+  /** Longest value, without spaces, that will be considered a code. */
+  public static final int     MAX_CODE_LENGTH = 32;
+
+  /** Values longer than this are counted together in the length histogram. */
+  public static final int     MAX_TRACKED_LENGTH = 256;
+
+  /** Maximum number of distinct patterns to be reported individually. */
+  public static final int     MAX_PATTERNS = 1000;
+
+  private String  name = "";
+
+  /** Shapes of the patterns seen, shared by profiles of the same column. */
+  private StringPattern.Interner interner;
+
+  private int     valueCount = 0;
+
+  private int[]   typeCounts = new int [TYPE_NAMES.length];
+
+  /** Number of values having each pattern, for every pattern seen. */
+  private HashMap<String, Counter> patterns = new HashMap<String, Counter>();
+
+  /**
+    The most frequent patterns, no more than MAX_PATTERNS of them, or null
+    if values have been added since they were last selected.
+   */
+  private HashMap<String, Counter> reportedPatterns = null;
+
+  /** Number of values whose patterns are not reported individually. */
+  private int     otherPatternCount = 0;
+
+  /** Number of values of each length, with longer values in the last slot. */
+  private int[]   lengthCounts = new int [MAX_TRACKED_LENGTH + 2];
+
+  private int     minLength = Integer.MAX_VALUE;
+  private int     maxLength = 0;
+  private long    totalLength = 0;
+
+  /**
+    Creates a new profile, with no values yet.
+   */
+  public ColumnProfile () {
+    interner = new StringPattern.Interner();
+  }
+
+  /**
+    Creates a new profile for a named column, with no values yet.
+
+    @param name The name of the column.
+   */
+  public ColumnProfile (String name) {
+    this.name = name;
+    interner = new StringPattern.Interner();
+  }
+
+  /**
+    Creates a new profile of one portion of a column, sharing the shapes of
+    its patterns with the profiles of the other portions.
+
+    @param interner The interner shared by the profiles of the column.
+   */
+  ColumnProfile (StringPattern.Interner interner) {
+    this.interner = interner;
+  }
+
+  /**
+    Adds another value from the column to the profile.
+
+    @param value The next value from the column. A null value is treated
+                 as an empty string.
+   */
+  public void add (String value) {
+    String s = value;
+    if (s == null) {
+      s = "";
+    }
+    StringPattern pattern = new StringPattern (s, interner);
+    valueCount++;
+    typeCounts [getType (s, pattern)]++;
+    countPattern (pattern.getPattern(), 1);
+    reportedPatterns = null;
+    int length = s.length();
+    lengthCounts [Math.min (length, MAX_TRACKED_LENGTH + 1)]++;
+    if (length < minLength) {
+      minLength = length;
+    }
+    if (length > maxLength) {
+      maxLength = length;
+    }
+    totalLength = totalLength + length;
+  }
+
+  /**
+    Adds the counts from another profile of the same column to this one.
+
+    @param other A profile of another portion of the same column.
+   */
+  public void merge (ColumnProfile other) {
+    valueCount = valueCount + other.valueCount;
+    for (int i = 0; i < typeCounts.length; i++) {
+      typeCounts [i] = typeCounts [i] + other.typeCounts [i];
+    }
+    Iterator<Map.Entry<String, Counter>> iterator
+        = other.patterns.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, Counter> entry = iterator.next();
+      countPattern (entry.getKey(), entry.getValue().get());
+    }
+    reportedPatterns = null;
+    for (int i = 0; i < lengthCounts.length; i++) {
+      lengthCounts [i] = lengthCounts [i] + other.lengthCounts [i];
+    }
+    if (other.minLength < minLength) {
+      minLength = other.minLength;
+    }
+    if (other.maxLength > maxLength) {
+      maxLength = other.maxLength;
+    }
+    totalLength = totalLength + other.totalLength;
+  }
+
+  /**
+    Count occurrences of a pattern. Every pattern is counted exactly, so
+    that profiles of different portions of a column merge to the same
+    result however the column was divided; MAX_PATTERNS is only applied
+    when the patterns are reported.
+   */
+  private void countPattern (String pattern, int count) {
+    Counter counter = patterns.get (pattern);
+    if (counter == null) {
+      counter = new Counter();
+      patterns.put (pattern, counter);
+    }
+    counter.add (count);
+  }
+
+  /**
+    Select the patterns to be reported individually: all of them, if there
+    are no more than MAX_PATTERNS, otherwise the MAX_PATTERNS most frequent,
+    with the values having any other pattern counted together. Ties go to
+    the pattern that sorts first.
+   */
+  private HashMap<String, Counter> getReportedPatterns () {
+    if (reportedPatterns != null) {
+      // Still current
+    }
+    else
+    if (patterns.size() <= MAX_PATTERNS) {
+      reportedPatterns = patterns;
+      otherPatternCount = 0;
+    } else {
+      ArrayList<Map.Entry<String, Counter>> entries
+          = new ArrayList<Map.Entry<String, Counter>> (patterns.entrySet());
+      Collections.sort (entries, new Comparator<Map.Entry<String, Counter>>() {
+        public int compare (Map.Entry<String, Counter> a,
+            Map.Entry<String, Counter> b) {
+          int countA = a.getValue().get();
+          int countB = b.getValue().get();
+          if (countA != countB) {
+            return countA > countB ? -1 : 1;
+          } else {
+            return a.getKey().compareTo (b.getKey());
+          }
+        }
+      });
+      reportedPatterns = new HashMap<String, Counter>();
+      otherPatternCount = 0;
+      for (int i = 0; i < entries.size(); i++) {
+        Map.Entry<String, Counter> entry = entries.get (i);
+        if (i < MAX_PATTERNS) {
+          reportedPatterns.put (entry.getKey(), entry.getValue());
+        } else {
+          otherPatternCount = otherPatternCount + entry.getValue().get();
+        }
+      }
+    }
+    return reportedPatterns;
+  }
+
+  /**
+    Determine the type of data in a single value.
+
+    @return One of the type constants defined by this class.
+    @param value   The value to be examined.
+    @param pattern The pattern of the value.
+   */
+  public static int getType (String value, StringPattern pattern) {
+    int length = pattern.getLength();
+    int digits = pattern.getDigitCount();
+    int punct = pattern.getPunctCount();
+    if (length == pattern.getSpaceCount()) {
+      return EMPTY_TYPE;
+    }
+    else
+    if (pattern.getSpaceCount() > 0) {
+      return TEXT_TYPE;
+    }
+    else
+    if (digits > 0 && pattern.getLetterCount() == 0) {
+      char first = value.charAt (0);
+      if (first == '-' || first == '+') {
+        punct--;
+      }
+      if (punct == 0) {
+        return INTEGER_TYPE;
+      }
+      else
+      if (punct == 1 && value.indexOf ('.') >= 0) {
+        return DECIMAL_TYPE;
+      }
+      else
+      if (isDatePattern (pattern)) {
+        return DATE_TYPE;
+      }
+    }
+    if (length <= MAX_CODE_LENGTH) {
+      return CODE_TYPE;
+    } else {
+      return TEXT_TYPE;
+    }
+  }
+
+  /**
+    Does this pattern look like a date, with month, day and year separated
+    by the same punctuation? Years may come first or last.
+   */
+  private static boolean isDatePattern (StringPattern pattern) {
+    if (pattern.getPunctCount() != 2
+        || (! pattern.isPunctAllSame())
+        || "/-.".indexOf (pattern.getPunctChar()) < 0) {
+      return false;
+    }
+    String p = pattern.getPattern();
+    int firstPunct = p.indexOf (StringScanner.PUNCT_CHAR);
+    int secondPunct = p.indexOf (StringScanner.PUNCT_CHAR, firstPunct + 1);
+    int first = firstPunct;
+    int second = secondPunct - firstPunct - 1;
+    int third = p.length() - secondPunct - 1;
+    if (first == 4) {
+      return (second >= 1 && second <= 2 && third >= 1 && third <= 2);
+    } else {
+      return (first >= 1 && first <= 2 && second >= 1 && second <= 2
+          && (third == 2 || third == 4));
+    }
+  }
+
+  /**
+    Infer the type of data held by the column, from the types of its
+    non-empty values: integer if all of them are integers; decimal if all
+    are numbers; date if all are dates; code if none contain spaces or
+    run longer than a code may; and otherwise text.
+
+    @return One of the type constants defined by this class.
+   */
+  public int getInferredType () {
+    int nonEmpty = valueCount - typeCounts [EMPTY_TYPE];
+    int numbers = typeCounts [INTEGER_TYPE] + typeCounts [DECIMAL_TYPE];
+    if (nonEmpty == 0) {
+      return EMPTY_TYPE;
+    }
+    else
+    if (typeCounts [INTEGER_TYPE] == nonEmpty) {
+      return INTEGER_TYPE;
+    }
+    else
+    if (numbers == nonEmpty) {
+      return DECIMAL_TYPE;
+    }
+    else
+    if (typeCounts [DATE_TYPE] == nonEmpty) {
+      return DATE_TYPE;
+    }
+    else
+    if (typeCounts [TEXT_TYPE] == 0) {
+      return CODE_TYPE;
+    } else {
+      return TEXT_TYPE;
+    }
+  }
+
+  public String getInferredTypeName () {
+    return TYPE_NAMES [getInferredType()];
+  }
+
+  /**
+    Returns the pattern found most often among the non-empty values in the
+    column, or an empty string if there are none. Ties go to the pattern
+    that sorts first.
+   */
+  public String getDominantPattern () {
+    String dominant = "";
+    int dominantCount = 0;
+    Iterator<Map.Entry<String, Counter>> iterator
+        = getReportedPatterns().entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, Counter> entry = iterator.next();
+      int count = entry.getValue().get();
+      if (entry.getKey().length() == 0) {
+        // Skip the pattern for empty values
+      }
+      else
+      if (count > dominantCount
+          || (count == dominantCount
+            && entry.getKey().compareTo (dominant) < 0)) {
+        dominant = entry.getKey();
+        dominantCount = count;
+      }
+    }
+    return dominant;
+  }
+
+  /**
+    Returns the number of values having the given pattern, or zero if the
+    pattern is not one of those reported individually.
+   */
+  public int getPatternCount (String pattern) {
+    Counter counter = getReportedPatterns().get (pattern);
+    if (counter == null) {
+      return 0;
+    } else {
+      return counter.get();
+    }
+  }
+
+  /**
+    Returns the patterns reported individually, in ascending order.
+   */
+  public List<String> getPatterns () {
+    ArrayList<String> list
+        = new ArrayList<String> (getReportedPatterns().keySet());
+    Collections.sort (list);
+    return list;
+  }
+
+  /**
+    Returns the number of values whose patterns are not reported
+    individually, because more than MAX_PATTERNS distinct patterns were
+    found.
+   */
+  public int getOtherPatternCount () {
+    getReportedPatterns();
+    return otherPatternCount;
+  }
+
+  /**
+    Returns the number of values of the given length. Values longer than
+    MAX_TRACKED_LENGTH are all counted under MAX_TRACKED_LENGTH + 1.
+   */
+  public int getLengthCount (int length) {
+    if (length < 0 || length >= lengthCounts.length) {
+      return 0;
+    } else {
+      return lengthCounts [length];
+    }
+  }
+
+  public int getTypeCount (int type) {
+    return typeCounts [type];
+  }
+
+  public String getName () {
+    return name;
+  }
+
+  public void setName (String name) {
+    this.name = name;
+  }
+
+  public int getValueCount () {
+    return valueCount;
+  }
+
+  public int getEmptyCount () {
+    return typeCounts [EMPTY_TYPE];
+  }
+
+  public int getMinLength () {
+    if (valueCount == 0) {
+      return 0;
+    } else {
+      return minLength;
+    }
+  }
+
+  public int getMaxLength () {
+    return maxLength;
+  }
+
+  public double getAverageLength () {
+    if (valueCount == 0) {
+      return 0;
+    } else {
+      return (double)totalLength / valueCount;
+    }
+  }
+
+  public String toString () {
+    return name + " ("
+        + getInferredTypeName() + ", "
+        + String.valueOf (valueCount) + " values, "
+        + String.valueOf (patterns.size()) + " patterns, dominant \""
+        + getDominantPattern() + "\", lengths "
+        + String.valueOf (getMinLength()) + " to "
+        + String.valueOf (maxLength) + ")";
+  }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2026 - 2026 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psutils;
+
+  import java.util.*;
+  import java.util.concurrent.*;
+
+/**
+   Profiles columns of data, spreading the work across all available
+   processors. The rows are split into slices, each slice is profiled
+   separately, and the resulting ColumnProfiles are then merged. <p>
+ */
+public class ColumnProfiler {
+
+  /** Default number of rows to be profiled by a single task. */
+  public static final int DEFAULT_SLICE_SIZE = 8192;
+
+  private ForkJoinPool    pool;
+
+  private int             sliceSize = DEFAULT_SLICE_SIZE;
+
+  /**
+    Creates a profiler using the common fork/join pool.
+   */
+  public ColumnProfiler () {
+    this (ForkJoinPool.commonPool());
+  }
+
+  /**
+    Creates a profiler using the given fork/join pool.
+
+    @param pool The pool in which the profiling tasks are to be run.
+   */
+  public ColumnProfiler (ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+    Set the number of rows to be profiled by a single task. Smaller slices
+    spread the work more evenly, but add more overhead.
+
+    @param sliceSize The number of rows per task.
+   */
+  public void setSliceSize (int sliceSize) {
+    this.sliceSize = Math.max (1, sliceSize);
+  }
+
+  public int getSliceSize () {
+    return sliceSize;
+  }
+
+  /**
+    Profile a single column of values.
+
+    @return The profile of the column.
+    @param values The values in the column.
+   */
+  public ColumnProfile profile (final List<String> values) {
+    Table table = new Table() {
+      int getRowCount () {
+        return values.size();
+      }
+      int getColumnCount () {
+        return 1;
+      }
+      String get (int row, int column) {
+        return values.get (row);
+      }
+    };
+    return profile (table) [0];
+  }
+
+  /**
+    Profile a single column of values.
+
+    @return The profile of the column.
+    @param values The values in the column.
+   */
+  public ColumnProfile profile (String[] values) {
+    return profile (Arrays.asList (values));
+  }
+
+  /**
+    Profile every column in a list of rows. Rows need not all have the
+    same number of fields: missing fields are treated as empty.
+
+    @return The profiles of the columns, one for each column found in the
+            longest row.
+    @param rows The rows of data, each an array of field values.
+   */
+  public ColumnProfile[] profileColumns (final List<String[]> rows) {
+    int columns = 0;
+    for (int i = 0; i < rows.size(); i++) {
+      columns = Math.max (columns, rows.get(i).length);
+    }
+    final int columnCount = columns;
+    Table table = new Table() {
+      int getRowCount () {
+        return rows.size();
+      }
+      int getColumnCount () {
+        return columnCount;
+      }
+      String get (int row, int column) {
+        String[] fields = rows.get (row);
+        if (column < fields.length) {
+          return fields [column];
+        } else {
+          return "";
+        }
+      }
+    };
+    return profile (table);
+  }
+
+  /**
+    Profile every column in a list of rows, naming each profile.
+
+    @return The profiles of the columns.
+    @param rows  The rows of data, each an array of field values.
+    @param names The names of the columns.
+   */
+  public ColumnProfile[] profileColumns (List<String[]> rows, String[] names) {
+    ColumnProfile[] profiles = profileColumns (rows);
+    for (int i = 0; i < profiles.length && i < names.length; i++) {
+      profiles [i].setName (names [i]);
+    }
+    return profiles;
+  }
+
+  private ColumnProfile[] profile (Table table) {
+    StringPattern.Interner[] interners
+        = new StringPattern.Interner [table.getColumnCount()];
+    for (int column = 0; column < interners.length; column++) {
+      interners [column] = new StringPattern.Interner();
+    }
+    return pool.invoke
+        (new ProfileTask (table, interners, 0, table.getRowCount()));
+  }
+
+  /**
+    Random access to the values to be profiled.
+   */
+  abstract static class Table {
+
+    abstract int getRowCount ();
+
+    abstract int getColumnCount ();
+
+    abstract String get (int row, int column);
+
+  }
+
+  /**
+    Profiles a range of rows, splitting it in half until it is small enough.
+   */
+  class ProfileTask
+      extends RecursiveTask<ColumnProfile[]> {
+
+    private static final long serialVersionUID = 1L;
+
+    private Table table;
+    private StringPattern.Interner[] interners;
+    private int   start;
+    private int   end;
+
+    ProfileTask (Table table, StringPattern.Interner[] interners,
+        int start, int end) {
+      this.table = table;
+      this.interners = interners;
+      this.start = start;
+      this.end = end;
+    }
+
+    protected ColumnProfile[] compute () {
+      if ((end - start) <= sliceSize) {
+        ColumnProfile[] profiles
+            = new ColumnProfile [table.getColumnCount()];
+        for (int column = 0; column < profiles.length; column++) {
+          profiles [column] = new ColumnProfile (interners [column]);
+        }
+        for (int row = start; row < end; row++) {
+          for (int column = 0; column < profiles.length; column++) {
+            profiles [column].add (table.get (row, column));
+          }
+        }
+        return profiles;
+      } else {
+        int middle = (start + end) >>> 1;
+        ProfileTask first = new ProfileTask (table, interners, start, middle);
+        ProfileTask second = new ProfileTask (table, interners, middle, end);
+        first.fork();
+        ColumnProfile[] secondProfiles = second.compute();
+        ColumnProfile[] profiles = first.join();
+        for (int column = 0; column < profiles.length; column++) {
+          profiles [column].merge (secondProfiles [column]);
+        }
+        return profiles;
+      }
+    }
+  }
+
+}
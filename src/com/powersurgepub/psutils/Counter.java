@@ -33,6 +33,11 @@ public class Counter {
     return count++;
   }
   
+  public int add(int amount) {
+    count = count + amount;
+    return count;
+  }
+  
   public int get() {
     return count;
   }
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2026 - 2026 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psutils;
+
+  import java.time.*;
+  import java.util.*;
+  import java.util.concurrent.*;
+
+/**
+   Parses dates made up of a month, a day and a year, in a given sequence,
+   with some kind of punctuation between them, following the same rules as
+   StringScanner.getDate. The sequence is examined once, when the parser is
+   created, and dates are returned as primitive epoch days (days since
+   1970-01-01), so that parsing allocates nothing. <p>
+
+   A parser may optionally keep a bounded cache of the strings it has
+   parsed most recently, for data in which the same dates recur. <p>
+ */
+public class DateParser {
+
+  public static final String  DEFAULT_SEQUENCE = "mdy";
+
+  public static final int     NONE  = 0;
+  public static final int     MONTH = 1;
+  public static final int     DAY   = 2;
+  public static final int     YEAR  = 3;
+
+  /** Largest value to be accepted for each component. */
+  public static final int     MAX_MONTH = 12;
+  public static final int     MAX_DAY   = 31;
+  public static final int     MAX_YEAR  = 2200;
+
+  /** Maximum number of shared parsers to be kept. */
+  private static final int    MAX_SHARED = 64;
+
+  private static final ConcurrentHashMap<String, DateParser> shared
+      = new ConcurrentHashMap<String, DateParser>();
+
+  /** The component found in each of the three positions. */
+  private final int[]   components = new int [3];
+
+  private int           cacheSize = 0;
+
+  private LinkedHashMap<String, Long> cache = null;
+
+  /**
+    Creates a parser for dates in month, day, year sequence.
+   */
+  public DateParser () {
+    this (DEFAULT_SEQUENCE);
+  }
+
+  /**
+    Creates a parser for dates in the given sequence.
+
+    @param inSeq String indicating the expected sequence of date components,
+                 using an "m" to indicate month, a "d" to indicate day,
+                 and a "y" to indicate year. Default is "mdy".
+   */
+  public DateParser (String inSeq) {
+    String seq;
+    if (inSeq.length() >= 3) {
+      seq = inSeq.toLowerCase();
+    } else {
+      seq = DEFAULT_SEQUENCE;
+    }
+    for (int i = 0; i < components.length; i++) {
+      char id = seq.charAt (i);
+      if (id == 'm') {
+        components [i] = MONTH;
+      }
+      else
+      if (id == 'd') {
+        components [i] = DAY;
+      }
+      else
+      if (id == 'y') {
+        components [i] = YEAR;
+      } else {
+        components [i] = NONE;
+      }
+    }
+  }
+
+  /**
+    Returns a shared parser for the given sequence, creating it the first
+    time the sequence is seen. Shared parsers do not cache dates.
+
+    @return A parser for the sequence.
+    @param inSeq The expected sequence of date components, as for
+                 the constructor.
+   */
+  public static DateParser getShared (String inSeq) {
+    DateParser parser = shared.get (inSeq);
+    if (parser == null) {
+      parser = new DateParser (inSeq);
+      if (shared.size() >= MAX_SHARED) {
+        shared.clear();
+      }
+      shared.put (inSeq, parser);
+    }
+    return parser;
+  }
+
+  /**
+    Keep the given number of the most recently parsed strings, along with
+    their dates, so that they need not be parsed again.
+
+    @param cacheSize The number of strings to be cached; zero to turn off
+                     caching.
+   */
+  public synchronized void setCacheSize (final int cacheSize) {
+    this.cacheSize = Math.max (0, cacheSize);
+    if (this.cacheSize == 0) {
+      cache = null;
+    } else {
+      cache = new LinkedHashMap<String, Long> (16, 0.75f, true) {
+        protected boolean removeEldestEntry (Map.Entry<String, Long> eldest) {
+          return size() > DateParser.this.cacheSize;
+        }
+      };
+    }
+  }
+
+  public synchronized int getCacheSize () {
+    return cacheSize;
+  }
+
+  /**
+    Returns the component expected in the given position.
+
+    @return MONTH, DAY, YEAR or NONE.
+    @param i The position, from 0 through 2.
+   */
+  public int getComponent (int i) {
+    return components [i];
+  }
+
+  /**
+    Parse a string to try to make a date out of it.
+
+    @return The date, as a number of days since 1970-01-01.
+    @param s The characters to be parsed.
+   */
+  public long parseEpochDay (CharSequence s) {
+    String key = null;
+    if (cache != null && s instanceof String) {
+      key = (String)s;
+      synchronized (this) {
+        if (cache != null) {
+          Long epochDay = cache.get (key);
+          if (epochDay != null) {
+            return epochDay.longValue();
+          }
+        }
+      }
+    }
+    int month = 1;
+    int day = 1;
+    int year = 1;
+    int i = 0;
+    for (int j = 0; j < components.length; j++) {
+      int upper = 0;
+      if (components [j] == MONTH) {
+        upper = MAX_MONTH;
+      }
+      else
+      if (components [j] == DAY) {
+        upper = MAX_DAY;
+      }
+      else
+      if (components [j] == YEAR) {
+        upper = MAX_YEAR;
+      }
+      if (upper > 0) {
+        long found = StringScanner.extractInteger (s, i, 1, upper);
+        i = StringScanner.getExtractedEnd (found);
+        int work = StringScanner.getExtractedValue (found);
+        if (components [j] == MONTH) {
+          month = work;
+        }
+        else
+        if (components [j] == DAY) {
+          day = work;
+        } else {
+          year = work;
+        }
+      } // end if component expected in this position
+    } // end for each position
+    long epochDay = toEpochDay (year, month, day);
+    if (key != null) {
+      synchronized (this) {
+        if (cache != null) {
+          cache.put (key, Long.valueOf (epochDay));
+        }
+      }
+    }
+    return epochDay;
+  }
+
+  /**
+    Parse a string to try to make a date out of it.
+
+    @return The date.
+    @param s The characters to be parsed.
+   */
+  public LocalDate parseLocalDate (CharSequence s) {
+    return LocalDate.ofEpochDay (parseEpochDay (s));
+  }
+
+  /**
+    Parse a string to try to make a date out of it.
+
+    @return The date, at midnight in the default time zone.
+    @param s The characters to be parsed.
+   */
+  public Date parseDate (CharSequence s) {
+    return toDate (parseEpochDay (s));
+  }
+
+  /**
+    Convert a year, month and day to an epoch day. Two-digit years are taken
+    to fall after 2000. As with a lenient GregorianCalendar, months and days
+    out of range roll over into adjacent months and years.
+
+    @return The number of days since 1970-01-01.
+    @param year  The year.
+    @param month The month, normally from 1 through 12.
+    @param day   The day of the month, normally from 1 through 31.
+   */
+  public static long toEpochDay (int year, int month, int day) {
+    long y = year;
+    if (y < 1900) {
+      y = y + 2000;
+    }
+    long months = (y * 12) + (month - 1);
+    y = Math.floorDiv (months, 12);
+    long m = Math.floorMod (months, 12) + 1;
+
+    // Days from civil, counting years from March so that leap days fall last
+    if (m <= 2) {
+      y--;
+    }
+    long era = Math.floorDiv (y, 400);
+    long yearOfEra = y - (era * 400);
+    long dayOfYear = ((153 * (m > 2 ? m - 3 : m + 9)) + 2) / 5;
+    long dayOfEra = (yearOfEra * 365) + (yearOfEra / 4) - (yearOfEra / 100)
+        + dayOfYear;
+    return (era * 146097) + dayOfEra - 719468 + (day - 1);
+  }
+
+  /**
+    Convert an epoch day to a Date, at midnight in the default time zone.
+
+    @return The date.
+    @param epochDay The number of days since 1970-01-01.
+   */
+  public static Date toDate (long epochDay) {
+    return Date.from (LocalDate.ofEpochDay (epochDay)
+        .atStartOfDay (ZoneId.systemDefault()).toInstant());
+  }
+
+}
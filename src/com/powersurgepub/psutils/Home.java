@@ -21,6 +21,7 @@ package com.powersurgepub.psutils;
   import java.awt.event.*;
   import java.io.*;
   import java.net.*;
+  import java.util.function.*;
   import java.util.prefs.*;
   import javax.swing.*;
 
@@ -130,23 +131,23 @@ public class Home {
     userDirString = System.getProperty (GlobalConstants.USER_DIR);
     Logger.getShared().recordEvent(
         LogEvent.NORMAL, 
-        "Program = " + programName + " " + programVersion, 
-        false);
+        false,
+        "Program = %s %s", programName, programVersion);
     Logger.getShared().recordEvent(
         LogEvent.NORMAL, 
-        "User Directory = " + userDirString, 
-        false);
+        false,
+        "User Directory = %s", userDirString);
     appFolder = new File (userDirString);
     prefsFolder = new File (userDirString);
 
     userHome = new File (System.getProperty (GlobalConstants.USER_HOME));
     Logger.getShared().recordEvent(
         LogEvent.NORMAL, 
-        "User Home = " + userHome.toString(), 
-        false);
+        false,
+        "User Home = %s", userHome);
     
-    logNormalEvent("Java Version: " + System.getProperty("java.version"));
-    logNormalEvent("Java Home: " + System.getProperty("java.home"));
+    logNormalEvent("Java Version: %s", System.getProperty("java.version"));
+    logNormalEvent("Java Home: %s", System.getProperty("java.home"));
     // Find the user's primary documents folder
     userDocs = new File (userHome, MAC_DOCS);
     if (userDocs != null
@@ -165,8 +166,8 @@ public class Home {
     }
     Logger.getShared().recordEvent(
         LogEvent.NORMAL, 
-        "User Docs = " + userDocs.toString(), 
-        false);
+        false,
+        "User Docs = %s", userDocs);
     
     /*
      * Compute the absolute file path to the jar file.
@@ -224,8 +225,8 @@ public class Home {
     }
     Logger.getShared().recordEvent(
         LogEvent.NORMAL, 
-        "Home jar file = " + jarFile.toString(), 
-        false);
+        false,
+        "Home jar file = %s", jarFile);
     
     File mainExecFolder = jarFile;
     File resourcesFolder = null;
@@ -237,8 +238,8 @@ public class Home {
     
     Logger.getShared().recordEvent(
         LogEvent.NORMAL,
-        "Main Exec Folder = " + mainExecFolder.toString(),
-        false);
+        false,
+        "Main Exec Folder = %s", mainExecFolder);
     
     if (userDirString.indexOf("/Dropbox") >= 0) {
       runningFromDropbox = true;
@@ -247,8 +248,8 @@ public class Home {
     }
     Logger.getShared().recordEvent(
         LogEvent.NORMAL, 
-        "Running from Dropbox folder? " + String.valueOf(runningFromDropbox), 
-        false);
+        false,
+        "Running from Dropbox folder? %s", runningFromDropbox);
     
     programDefaultDataFolder = new File (userDocs, this.programName);
     
@@ -273,12 +274,12 @@ public class Home {
       File jars = new File (pspubDocs, "jars");
       appFolder = jars;
     } else {
-      Logger.getShared().recordEvent(LogEvent.NORMAL, 
-          "Main Exec Folder name = " + mainExecFolder.getName(), false);
+      Logger.getShared().recordEvent(LogEvent.NORMAL, false,
+          "Main Exec Folder name = %s", mainExecFolder.getName());
       if (mainExecFolder.getName().equals("Java")) {
         File contentsFolder = mainExecFolder.getParentFile();
-        Logger.getShared().recordEvent(LogEvent.NORMAL, 
-            "Contents Folder name = " + contentsFolder.getName(), false);
+        Logger.getShared().recordEvent(LogEvent.NORMAL, false,
+            "Contents Folder name = %s", contentsFolder.getName());
         File javaAppFolder = new File (mainExecFolder, APP_FOLDER);
         boolean appFolderFound = tryAppFolder(javaAppFolder);
 
@@ -322,8 +323,8 @@ public class Home {
           false);
     } else {
       Logger.getShared().recordEvent(LogEvent.NORMAL, 
-          "Icon file loaded from " + iconFile.toString(), 
-          false);
+          false,
+          "Icon file loaded from %s", iconFile);
     }
     
     // Create a URL pointing to the applications folder
@@ -333,8 +334,8 @@ public class Home {
           "App Folder Missing");
     } else {
       Logger.getShared().recordEvent (LogEvent.NORMAL, 
-        "App Folder = " + appFolder.toString(),
-        false);
+        false,
+        "App Folder = %s", appFolder);
       try {
         pageURL = appFolder.toURI().toURL(); 
       } catch (MalformedURLException e) {
@@ -381,9 +382,8 @@ public class Home {
       goodAppFolder = true;
       Logger.getShared().recordEvent(
           LogEvent.NORMAL, 
-          "App Folder found at " 
-              + folderToTry.toString(), 
-          false);
+          false,
+          "App Folder found at %s", folderToTry);
     }
     return goodAppFolder;
   }
@@ -392,8 +392,8 @@ public class Home {
     if (dir != null) {
       Logger.getShared().recordEvent(
           LogEvent.NORMAL, 
-          "Navigating to => " + dir.toString(), 
-          false);
+          false,
+          "Navigating to => %s", dir);
     }
   }
   
@@ -760,8 +760,8 @@ public class Home {
     
     Logger.getShared().recordEvent
         (LogEvent.NORMAL,
-        "Home opening URL " + url + cleaningMsg,
-        false);
+        false,
+        "Home opening URL %s%s", url, cleaningMsg);
 
     if (browserAvailable) {
         try {
@@ -803,6 +803,16 @@ public class Home {
     Logger.getShared().recordEvent(LogEvent.NORMAL, message, false);
   }
   
+  /**
+   Log a normal event, formatting the message only if it will be written. 
+  
+   @param format The format of the message, as for String.format.
+   @param args   The values to be formatted into the message.
+  */
+  public void logNormalEvent(String format, Object... args) {
+    Logger.getShared().recordEvent(LogEvent.NORMAL, false, format, args);
+  }
+  
   /**
      Creates a LogEvent object and then records it.
     
@@ -817,5 +827,19 @@ public class Home {
     Logger.getShared().recordEvent (severity, message, dataRelated);
   }
   
+  /**
+     Records an event, building its message only if it will be written.
+    
+     @param severity      the severity of the event
+    
+     @param message       supplies the message to be written to the log
+    
+     @param dataRelated   indicates whether this event is related
+                          to preceding data.
+   */
+  public void log (int severity, Supplier<String> message, boolean dataRelated) {
+    Logger.getShared().recordEvent (severity, message, dataRelated);
+  }
+  
 } // end class
 
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2026 - 2026 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psutils;
+
+  import java.util.*;
+
+/**
+   Searches text for one or more substrings, ignoring case. The substrings
+   are compiled once, into a Boyer-Moore-Horspool skip table, so that a
+   single searcher can then be used to scan any amount of text, usually
+   examining only a fraction of its characters. <p>
+
+   A character in the text matches a character in a substring if it is
+   equal to either the lower-case or the upper-case form of that character,
+   as with StringUtils.indexOfIgnoreCase. <p>
+
+   Once constructed, a searcher is never modified, so it may be shared freely
+   between threads. <p>
+ */
+public class IgnoreCaseSearcher {
+
+  /** Lower-case form of each substring. */
+  private final char[][]  lower;
+
+  /** Upper-case form of each substring. */
+  private final char[][]  upper;
+
+  /** Length of the shortest substring: the width of the search window. */
+  private final int       window;
+
+  /** Shift for each Latin-1 character found at the end of the window. */
+  private final int[]     skipLatin = new int[256];
+
+  /** Other characters appearing in the substrings, in ascending order. */
+  private final char[]    otherChars;
+
+  /** Shift for each of the other characters. */
+  private final int[]     otherSkip;
+
+  /**
+    Compiles a searcher for a single substring.
+
+    @param needle The substring to search for, in any case.
+   */
+  public IgnoreCaseSearcher (String needle) {
+    this (new String[] {needle});
+  }
+
+  /**
+    Compiles a searcher for a single substring, supplied in both lower-case
+    and upper-case forms, as for StringUtils.indexOfIgnoreCase.
+
+    @param needleLower The substring to search for, in all lower-case.
+    @param needleUpper The substring to search for, in all upper-case.
+   */
+  public IgnoreCaseSearcher (String needleLower, String needleUpper) {
+    this (new String[] {needleLower}, new String[] {needleUpper});
+  }
+
+  /**
+    Compiles a searcher for several substrings at once. A match for any one
+    of them will be found. Empty substrings are ignored.
+
+    @param needles The substrings to search for, in any case.
+   */
+  public IgnoreCaseSearcher (String[] needles) {
+    this (foldCase (needles, false), foldCase (needles, true));
+  }
+
+  /**
+    Compiles a searcher from lower-case and upper-case forms of each of
+    several substrings.
+   */
+  private IgnoreCaseSearcher (String[] needlesLower, String[] needlesUpper) {
+
+    // Keep the non-empty substrings, noting the length of the shortest
+    ArrayList<char[]> lowerList = new ArrayList<char[]>();
+    ArrayList<char[]> upperList = new ArrayList<char[]>();
+    int shortest = Integer.MAX_VALUE;
+    for (int i = 0; i < needlesLower.length; i++) {
+      int length = Math.min
+          (needlesLower [i].length(), needlesUpper [i].length());
+      if (length > 0) {
+        lowerList.add (needlesLower [i].substring (0, length).toCharArray());
+        upperList.add (needlesUpper [i].substring (0, length).toCharArray());
+        if (length < shortest) {
+          shortest = length;
+        }
+      }
+    }
+    lower = lowerList.toArray (new char [lowerList.size()][]);
+    upper = upperList.toArray (new char [upperList.size()][]);
+    if (lower.length == 0) {
+      window = 0;
+    } else {
+      window = shortest;
+    }
+
+    // Build the skip table. A character at the end of the window allows the
+    // window to be shifted so that it lines up with the last occurrence of
+    // that character within the first (window - 1) positions of any
+    // substring; or shifted by the whole window if it occurs in none of them.
+    Arrays.fill (skipLatin, window);
+    TreeMap<Character, Integer> others = new TreeMap<Character, Integer>();
+    for (int n = 0; n < lower.length; n++) {
+      for (int j = 0; j < window - 1; j++) {
+        int shift = window - 1 - j;
+        setSkip (lower [n][j], shift, others);
+        setSkip (upper [n][j], shift, others);
+      }
+    }
+    otherChars = new char [others.size()];
+    otherSkip = new int [others.size()];
+    int k = 0;
+    Iterator<Map.Entry<Character, Integer>> iterator 
+        = others.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Character, Integer> entry = iterator.next();
+      otherChars [k] = entry.getKey().charValue();
+      otherSkip [k] = entry.getValue().intValue();
+      k++;
+    }
+  } // end constructor
+
+  /**
+    Convert each of the given strings, character by character, to lower-case
+    or upper-case, so that both forms have the same length.
+   */
+  private static String[] foldCase (String[] needles, boolean toUpper) {
+    String[] folded = new String [needles.length];
+    for (int i = 0; i < needles.length; i++) {
+      char[] chars = needles [i].toCharArray();
+      for (int j = 0; j < chars.length; j++) {
+        if (toUpper) {
+          chars [j] = Character.toUpperCase (chars [j]);
+        } else {
+          chars [j] = Character.toLowerCase (chars [j]);
+        }
+      }
+      folded [i] = new String (chars);
+    }
+    return folded;
+  }
+
+  /**
+    Record a shift for a character, keeping the smallest shift seen.
+   */
+  private void setSkip (char c, int shift, TreeMap<Character, Integer> others) {
+    if (c < skipLatin.length) {
+      if (shift < skipLatin [c]) {
+        skipLatin [c] = shift;
+      }
+    } else {
+      Character key = Character.valueOf (c);
+      Integer prior = others.get (key);
+      if (prior == null || shift < prior.intValue()) {
+        others.put (key, Integer.valueOf (shift));
+      }
+    }
+  }
+
+  /**
+    Return the distance the window may be shifted when the given character
+    is found at its end.
+   */
+  private int skip (char c) {
+    if (c < skipLatin.length) {
+      return skipLatin [c];
+    }
+    int k = Arrays.binarySearch (otherChars, c);
+    if (k < 0) {
+      return window;
+    } else {
+      return otherSkip [k];
+    }
+  }
+
+  /**
+    Searches the entire text.
+
+    @return -1 if no substring is found, otherwise the position
+            of the first one found.
+    @param text The text to be searched.
+   */
+  public int indexOf (CharSequence text) {
+    return indexOf (text, 0, text.length());
+  }
+
+  /**
+    Searches the text from the given position onwards.
+
+    @return -1 if no substring is found, otherwise the position
+            of the first one found.
+    @param text  The text to be searched.
+    @param start The position at which to start searching.
+   */
+  public int indexOf (CharSequence text, int start) {
+    return indexOf (text, start, text.length());
+  }
+
+  /**
+    Searches a region of the text. A substring must lie entirely within
+    the region in order to be found.
+
+    @return -1 if no substring is found, otherwise the position
+            of the first one found.
+    @param text  The text to be searched.
+    @param start The first position to be searched.
+    @param end   The end of the region to be searched (exclusive).
+   */
+  public int indexOf (CharSequence text, int start, int end) {
+    if (window == 0) {
+      return -1;
+    }
+    int i = Math.max (start, 0);
+    int last = Math.min (end, text.length()) - window;
+    while (i <= last) {
+      if (needleAt (text, i, end) >= 0) {
+        return i;
+      }
+      i = i + skip (text.charAt (i + window - 1));
+    }
+    return -1;
+  }
+
+  /**
+    Finds every position in the text at which one of the substrings begins.
+    Matches may overlap.
+
+    @return The positions found, in ascending order.
+    @param text The text to be searched.
+   */
+  public int[] findAll (CharSequence text) {
+    return findAll (text, 0, text.length());
+  }
+
+  /**
+    Finds every position within a region of the text at which one of the
+    substrings begins. Matches may overlap.
+
+    @return The positions found, in ascending order.
+    @param text  The text to be searched.
+    @param start The first position to be searched.
+    @param end   The end of the region to be searched (exclusive).
+   */
+  public int[] findAll (CharSequence text, int start, int end) {
+    int[] found = new int [8];
+    int count = 0;
+    int i = indexOf (text, start, end);
+    while (i >= 0) {
+      if (count >= found.length) {
+        found = Arrays.copyOf (found, found.length * 2);
+      }
+      found [count] = i;
+      count++;
+      i = indexOf (text, i + 1, end);
+    }
+    return Arrays.copyOf (found, count);
+  }
+
+  /**
+    Counts the positions in the text at which one of the substrings begins.
+
+    @return The number of matches found.
+    @param text The text to be searched.
+   */
+  public int count (CharSequence text) {
+    int count = 0;
+    int i = indexOf (text, 0, text.length());
+    while (i >= 0) {
+      count++;
+      i = indexOf (text, i + 1, text.length());
+    }
+    return count;
+  }
+
+  /**
+    Identifies the substring found at the given position. If more than one
+    substring matches, the first one passed to the constructor wins.
+
+    @return The index of the matching substring, among the non-empty
+            substrings passed to the constructor, or -1 if none of them
+            begins at this position.
+    @param text     The text being searched.
+    @param position The position at which a substring must begin.
+    @param end      The end of the region being searched (exclusive).
+   */
+  public int needleAt (CharSequence text, int position, int end) {
+    int available = Math.min (end, text.length()) - position;
+    for (int n = 0; n < lower.length; n++) {
+      char[] l = lower [n];
+      char[] u = upper [n];
+      if (l.length <= available) {
+        int j = 0;
+        while (j < l.length
+            && (text.charAt (position + j) == l [j]
+              || text.charAt (position + j) == u [j])) {
+          j++;
+        }
+        if (j >= l.length) {
+          return n;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+    Returns the length of the given substring.
+
+    @param n The index of a substring, as returned by needleAt.
+   */
+  public int getNeedleLength (int n) {
+    return lower [n].length;
+  }
+
+  /**
+    Returns the number of non-empty substrings being searched for.
+   */
+  public int getNeedleCount () {
+    return lower.length;
+  }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2026 - 2026 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psutils;
+
+/**
+   An interface for classes that process lines of text one at a time,
+   possibly on many threads at once.
+ */
+public interface LineHandler {
+
+  /**
+    Process one line of text.
+
+    @param line       The line, without its line terminator. This may be a
+                      view of a reader's buffer, valid only until this
+                      method returns: use toString to keep it.
+    @param lineNumber The number of the line within its file, starting at 1.
+   */
+  public void handleLine (CharSequence line, long lineNumber);
+
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright 2026 - 2026 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psutils;
+
+  import java.io.*;
+  import java.nio.*;
+  import java.nio.channels.*;
+  import java.nio.charset.*;
+
+/**
+   Reads lines of text through NIO, decoding them from a declared charset
+   and finding the line boundaries itself. Files are memory-mapped a
+   window at a time, so that files larger than 2 GB may be read; other
+   sources are read through a channel. Either way, bytes are decoded from
+   a large heap buffer, since charset decoders work fastest on arrays. <p>
+
+   As with BufferedReader, a line is ended by a line feed, a carriage
+   return, or a carriage return followed by a line feed. Malformed input
+   is replaced, as it would be by an InputStreamReader. <p>
+
+   Lines may be returned as Strings, or as CharSequence views of the
+   reader's own buffer, so that callers who only inspect each line need
+   not copy it. A view remains valid only until the next line is read. <p>
+ */
+public class LineReader
+    implements Closeable {
+
+  /** Number of bytes of a file to be mapped at one time. */
+  public static final int     DEFAULT_MAP_SIZE = 64 * 1024 * 1024;
+
+  /** Number of bytes to be decoded at one time. */
+  public static final int     DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+  /** Initial number of decoded characters to be held. */
+  public static final int     DEFAULT_CHAR_BUFFER_SIZE = 64 * 1024;
+
+  /** The file being mapped, if reading a file. */
+  private FileChannel         fileChannel = null;
+
+  /** The source of bytes, if not reading a file. */
+  private ReadableByteChannel channel = null;
+
+  /** The current window of the file. */
+  private MappedByteBuffer    mapped = null;
+
+  /** The position in the file at which the next window is to be mapped. */
+  private long                mapStart;
+
+  /** The position in the file at which reading is to stop. */
+  private long                mapEnd;
+
+  private int                 mapSize = DEFAULT_MAP_SIZE;
+
+  /** Bytes waiting to be decoded. */
+  private ByteBuffer          bytes;
+
+  /** No more bytes will be added once the current bytes are decoded. */
+  private boolean             endOfBytes = false;
+
+  /** All bytes have been decoded, and the decoder flushed. */
+  private boolean             decoded = false;
+
+  private CharsetDecoder      decoder;
+
+  /** Decoded characters, not all of which may have been returned yet. */
+  private char[]              buf;
+
+  /** The next character to be returned. */
+  private int                 pos = 0;
+
+  /** The end of the decoded characters. */
+  private int                 limit = 0;
+
+  /** The last line ended with a carriage return: skip a following line feed. */
+  private boolean             skipLF = false;
+
+  /** Reusable view of the current line. */
+  private Line                line = new Line();
+
+  /**
+    Creates a reader for an entire file, memory-mapping it.
+
+    @param file    The file to be read.
+    @param charset The charset in which the file is encoded.
+   */
+  public LineReader (File file, Charset charset)
+      throws IOException {
+    this (new RandomAccessFile (file, "r").getChannel(), charset);
+  }
+
+  /**
+    Creates a reader for an entire file, memory-mapping it. The reader
+    will close the channel when it is closed.
+
+    @param fileChannel The file to be read.
+    @param charset     The charset in which the file is encoded.
+   */
+  public LineReader (FileChannel fileChannel, Charset charset)
+      throws IOException {
+    this (fileChannel, 0, fileChannel.size(), charset);
+  }
+
+  /**
+    Creates a reader for a range of bytes within a file, memory-mapping
+    them. The reader will close the channel when it is closed.
+
+    @param fileChannel The file to be read.
+    @param start       The position in the file at which to start reading.
+    @param end         The position in the file at which to stop reading.
+    @param charset     The charset in which the file is encoded.
+   */
+  public LineReader (FileChannel fileChannel, long start, long end,
+      Charset charset) {
+    this.fileChannel = fileChannel;
+    mapStart = start;
+    mapEnd = end;
+    initialize (charset, (int)Math.min (DEFAULT_BUFFER_SIZE, end - start));
+  }
+
+  /**
+    Creates a reader for a stream of bytes.
+    The reader will close the stream when it is closed.
+
+    @param in      The stream to be read.
+    @param charset The charset in which the stream is encoded.
+   */
+  public LineReader (InputStream in, Charset charset) {
+    this (Channels.newChannel (in), charset, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+    Creates a reader for a channel.
+    The reader will close the channel when it is closed.
+
+    @param channel    The channel to be read.
+    @param charset    The charset in which the channel is encoded.
+    @param bufferSize The number of bytes to read at one time.
+   */
+  public LineReader (ReadableByteChannel channel, Charset charset,
+      int bufferSize) {
+    this.channel = channel;
+    initialize (charset, bufferSize);
+  }
+
+  private void initialize (Charset charset, int bufferSize) {
+    bytes = ByteBuffer.allocate (Math.max (16, bufferSize));
+    bytes.flip();
+    buf = new char [Math.max (16, Math.min (DEFAULT_CHAR_BUFFER_SIZE, bufferSize))];
+    decoder = charset.newDecoder()
+        .onMalformedInput (CodingErrorAction.REPLACE)
+        .onUnmappableCharacter (CodingErrorAction.REPLACE);
+  }
+
+  /**
+    Set the number of bytes of a file to be mapped at one time. This must
+    be done before the first line is read.
+
+    @param mapSize The number of bytes to be mapped.
+   */
+  public void setMapSize (int mapSize) {
+    this.mapSize = Math.max (16, mapSize);
+  }
+
+  public int getMapSize () {
+    return mapSize;
+  }
+
+  /**
+    Returns the next line, as a new String.
+
+    @return The next line, without its line terminator, or null if the
+            end of the input has been reached.
+   */
+  public String readLine ()
+      throws IOException {
+    CharSequence next = readLineSequence();
+    if (next == null) {
+      return null;
+    } else {
+      return next.toString();
+    }
+  }
+
+  /**
+    Returns a view of the next line, without copying it. The view will
+    only remain valid until the next line is read.
+
+    @return The next line, without its line terminator, or null if the
+            end of the input has been reached.
+   */
+  public CharSequence readLineSequence ()
+      throws IOException {
+    if (skipLF) {
+      if (pos >= limit) {
+        fill();
+      }
+      if (pos < limit && buf [pos] == '\n') {
+        pos++;
+      }
+      skipLF = false;
+    }
+    int scan = pos;
+    while (true) {
+      while (scan < limit) {
+        char c = buf [scan];
+        if (c == '\n' || c == '\r') {
+          line.set (buf, pos, scan - pos);
+          pos = scan + 1;
+          skipLF = (c == '\r');
+          return line;
+        }
+        scan++;
+      }
+      int scanned = scan - pos;
+      if (! fill()) {
+        if (limit > pos) {
+          line.set (buf, pos, limit - pos);
+          pos = limit;
+          return line;
+        } else {
+          return null;
+        }
+      }
+      scan = pos + scanned;
+    } // end while looking for end of line
+  }
+
+  /**
+    Decode more characters, moving those not yet returned to the front of
+    the buffer, and enlarging the buffer if it is already full of them.
+
+    @return True if more characters were decoded; false at end of input.
+   */
+  private boolean fill ()
+      throws IOException {
+    if (pos > 0) {
+      System.arraycopy (buf, pos, buf, 0, limit - pos);
+      limit = limit - pos;
+      pos = 0;
+    }
+    if (limit >= buf.length) {
+      grow();
+    }
+    int before = limit;
+    CharBuffer out = CharBuffer.wrap (buf, limit, buf.length - limit);
+    while (limit == before && ! decoded) {
+      CoderResult result = decoder.decode (bytes, out, endOfBytes);
+      limit = out.position();
+      if (result.isUnderflow()) {
+        if (endOfBytes) {
+          decoder.flush (out);
+          limit = out.position();
+          decoded = true;
+        }
+        else
+        if (limit == before) {
+          readBytes();
+        }
+      }
+      else
+      if (result.isOverflow()) {
+        if (limit == before) {
+
+          // Not even room for a surrogate pair
+          grow();
+          out = CharBuffer.wrap (buf, limit, buf.length - limit);
+        }
+      } else {
+        result.throwException();
+      }
+    }
+    return (limit > before);
+  }
+
+  private void grow () {
+    char[] larger = new char [buf.length * 2];
+    System.arraycopy (buf, 0, larger, 0, limit);
+    buf = larger;
+  }
+
+  /**
+    Make more bytes available for decoding, carrying over any bytes not
+    yet decoded.
+   */
+  private void readBytes ()
+      throws IOException {
+    bytes.compact();
+    if (fileChannel != null) {
+      if ((mapped == null || ! mapped.hasRemaining()) && mapStart < mapEnd) {
+        long length = Math.min ((long)mapSize, mapEnd - mapStart);
+        mapped = fileChannel.map 
+            (FileChannel.MapMode.READ_ONLY, mapStart, length);
+        mapStart = mapStart + length;
+      }
+      if (mapped == null || ! mapped.hasRemaining()) {
+        endOfBytes = true;
+      } else {
+        int count = Math.min (bytes.remaining(), mapped.remaining());
+        int mappedLimit = mapped.limit();
+        mapped.limit (mapped.position() + count);
+        bytes.put (mapped);
+        mapped.limit (mappedLimit);
+      }
+    } else {
+      int count = 0;
+      while (count == 0 && bytes.hasRemaining()) {
+        count = channel.read (bytes);
+      }
+      if (count < 0) {
+        endOfBytes = true;
+      }
+    }
+    bytes.flip();
+  }
+
+  /**
+    Returns an upper bound on what remains to be read from a file: the
+    bytes not yet decoded, plus the characters decoded but not yet 
+    returned. Since every line holds at least one of these, this is no 
+    less than the number of lines remaining.
+
+    @return The amount remaining, or -1 if not reading a file.
+   */
+  long estimateRemaining () {
+    if (fileChannel == null) {
+      return -1;
+    }
+    long remaining = (mapEnd - mapStart) + bytes.remaining() + (limit - pos);
+    if (mapped != null) {
+      remaining = remaining + mapped.remaining();
+    }
+    return remaining;
+  }
+
+  /**
+    Closes the underlying file or channel.
+   */
+  public void close ()
+      throws IOException {
+    if (fileChannel != null) {
+      fileChannel.close();
+    }
+    if (channel != null) {
+      channel.close();
+    }
+    mapped = null;
+    decoded = true;
+    pos = limit;
+  }
+
+  /**
+    A view of a line held within the reader's buffer.
+   */
+  static class Line
+      implements CharSequence {
+
+    private char[]  chars;
+    private int     offset;
+    private int     length;
+
+    void set (char[] chars, int offset, int length) {
+      this.chars = chars;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    public int length () {
+      return length;
+    }
+
+    public char charAt (int index) {
+      if (index < 0 || index >= length) {
+        throw new IndexOutOfBoundsException (String.valueOf (index));
+      }
+      return chars [offset + index];
+    }
+
+    public CharSequence subSequence (int start, int end) {
+      if (start < 0 || end > length || start > end) {
+        throw new IndexOutOfBoundsException
+            (String.valueOf (start) + ", " + String.valueOf (end));
+      }
+      return new String (chars, offset + start, end - start);
+    }
+
+    public String toString () {
+      return new String (chars, offset, length);
+    }
+  }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2026 - 2026 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psutils;
+
+  import java.io.*;
+  import java.nio.channels.*;
+  import java.nio.charset.*;
+  import java.util.*;
+  import java.util.function.*;
+
+/**
+   A Spliterator over the lines of a file, for use in a Stream. A range of
+   bytes within a file is split at the line feed nearest its middle, so
+   that a parallel stream can read different parts of the file on different
+   threads, each through its own memory-mapped LineReader. <p>
+
+   Lines from other sources, or in charsets that encode line terminators
+   as more than one byte, are read in order, and cannot be split. <p>
+ */
+public class LineSpliterator
+    implements Spliterator<String> {
+
+  /** Ranges smaller than this will not be split any further. */
+  public static final long MIN_SPLIT_SIZE = 8192;
+
+  private FileChannel channel = null;
+  private Charset     charset = null;
+  private long        start;
+  private long        end;
+
+  /** The reader for the lines, once reading has begun. */
+  private LineReader  reader = null;
+
+  /**
+    Creates a spliterator over the lines in a range of bytes within a file.
+    The channel is not closed by the spliterator.
+
+    @param channel The file to be read.
+    @param start   The position in the file at which to start reading.
+    @param end     The position in the file at which to stop reading.
+    @param charset The charset in which the file is encoded.
+   */
+  public LineSpliterator (FileChannel channel, long start, long end,
+      Charset charset) {
+    this.channel = channel;
+    this.start = start;
+    this.end = end;
+    this.charset = charset;
+  }
+
+  /**
+    Creates a spliterator over the lines returned by a reader, which cannot
+    be split.
+
+    @param reader The reader supplying the lines.
+   */
+  public LineSpliterator (LineReader reader) {
+    this.reader = reader;
+  }
+
+  public boolean tryAdvance (Consumer<? super String> action) {
+    String line = nextLine();
+    if (line == null) {
+      return false;
+    } else {
+      action.accept (line);
+      return true;
+    }
+  }
+
+  public void forEachRemaining (Consumer<? super String> action) {
+    String line = nextLine();
+    while (line != null) {
+      action.accept (line);
+      line = nextLine();
+    }
+  }
+
+  private String nextLine () {
+    try {
+      if (reader == null) {
+        reader = new LineReader (channel, start, end, charset);
+      }
+      return reader.readLine();
+    } catch (IOException e) {
+      throw new UncheckedIOException (e);
+    }
+  }
+
+  /**
+    Split off the first half of the remaining lines, ending at the first
+    line feed after the middle of the range.
+
+    @return A spliterator for the first half of the lines, or null if the
+            lines cannot be split.
+   */
+  public Spliterator<String> trySplit () {
+    if (reader != null
+        || (end - start) < MIN_SPLIT_SIZE
+        || (! ParallelLineReader.isSplittable (charset))) {
+      return null;
+    }
+    long middle;
+    try {
+      middle = ParallelLineReader.nextLineStart
+          (channel, (start + end) >>> 1, end);
+    } catch (IOException e) {
+      throw new UncheckedIOException (e);
+    }
+    if (middle >= end) {
+      return null;
+    }
+    LineSpliterator firstHalf
+        = new LineSpliterator (channel, start, middle, charset);
+    start = middle;
+    return firstHalf;
+  }
+
+  /**
+    Returns the number of bytes remaining, which can be no fewer than the
+    number of lines, or an unknown size if the lines are not from a range
+    of bytes.
+   */
+  public long estimateSize () {
+    if (channel == null) {
+      return Long.MAX_VALUE;
+    }
+    else
+    if (reader == null) {
+      return end - start;
+    } else {
+      return reader.estimateRemaining();
+    }
+  }
+
+  public int characteristics () {
+    return ORDERED | NONNULL;
+  }
+
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2026 - 2026 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psutils;
+
+  import java.io.*;
+  import java.nio.charset.*;
+  import java.util.*;
+  import java.util.concurrent.*;
+
+/**
+   Writes lines of text through a large buffer, in a declared charset.
+   Lines are collected into chunks of characters, and each chunk is written
+   with a single call once it is full. <p>
+
+   Optionally, full chunks may be handed to a background thread through a
+   bounded queue, so that the thread writing lines need not wait for the
+   disk: it will only wait if every chunk is still waiting to be written.
+   The background thread flushes its output whenever it runs out of chunks
+   to write. An I/O error on the background thread is thrown by the next
+   call to write, flush or close; the thread then discards the remaining 
+   chunks, but keeps returning them, so that the writing thread never 
+   waits forever. <p>
+
+   A LineWriter should only be used by one thread at a time. <p>
+ */
+public class LineWriter
+    implements Closeable, Flushable {
+
+  /** Default number of characters in each chunk. */
+  public static final int     DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+  /** Default number of chunks that may wait for the background thread. */
+  public static final int     DEFAULT_QUEUE_CAPACITY = 4;
+
+  /** Marks the end of the chunks for the background thread. */
+  private static final Chunk  END = new Chunk (0);
+
+  private Writer              writer;
+
+  private String              lineSeparator = System.getProperty ("line.separator");
+
+  /** The chunk currently being filled. */
+  private Chunk               chunk;
+
+  /** Full chunks waiting for the background thread; or null if none. */
+  private ArrayBlockingQueue<Chunk> full = null;
+
+  /** Empty chunks, ready to be filled. */
+  private ArrayBlockingQueue<Chunk> free = null;
+
+  private Thread              backgroundThread = null;
+
+  /** Number of chunks handed to the background thread. */
+  private long                submitted = 0;
+
+  /** Number of chunks written by the background thread. */
+  private long                written = 0;
+
+  /** The first error encountered by the background thread. */
+  private volatile IOException failure = null;
+
+  private boolean             closed = false;
+
+  /**
+    Creates a writer with the default buffer size, writing on the
+    calling thread.
+
+    @param out     Where the encoded lines are to be written.
+    @param charset The charset in which lines are to be encoded.
+   */
+  public LineWriter (OutputStream out, Charset charset) {
+    this (out, charset, DEFAULT_BUFFER_SIZE, 0);
+  }
+
+  /**
+    Creates a writer.
+
+    @param out           Where the encoded lines are to be written.
+    @param charset       The charset in which lines are to be encoded.
+    @param bufferSize    The number of characters in each chunk.
+    @param queueCapacity The number of full chunks that may wait for a
+                         background thread to write them; or zero to write
+                         each chunk on the calling thread.
+   */
+  public LineWriter (OutputStream out, Charset charset, int bufferSize,
+      int queueCapacity) {
+    int size = Math.max (16, bufferSize);
+    writer = new OutputStreamWriter
+        (new BufferedOutputStream (out, size), charset);
+    chunk = new Chunk (size);
+    if (queueCapacity > 0) {
+      full = new ArrayBlockingQueue<Chunk> (queueCapacity + 1);
+      free = new ArrayBlockingQueue<Chunk> (queueCapacity + 1);
+      for (int i = 0; i < queueCapacity; i++) {
+        free.add (new Chunk (size));
+      }
+      backgroundThread = new Thread (new Runnable() {
+        public void run () {
+          writeChunks();
+        }
+      }, "LineWriter");
+      backgroundThread.setDaemon (true);
+      backgroundThread.start();
+    }
+  }
+
+  /**
+    Set the characters to be written at the end of each line. The default
+    is the system's line separator.
+
+    @param lineSeparator The line separator to be used.
+   */
+  public void setLineSeparator (String lineSeparator) {
+    this.lineSeparator = lineSeparator;
+  }
+
+  public String getLineSeparator () {
+    return lineSeparator;
+  }
+
+  /**
+    Is a background thread doing the writing?
+   */
+  public boolean isBackground () {
+    return (backgroundThread != null);
+  }
+
+  /**
+    Write a line, followed by the line separator.
+
+    @param line The line to be written.
+   */
+  public void writeLine (CharSequence line)
+      throws IOException {
+    write (line);
+    write (lineSeparator);
+  }
+
+  /**
+    Write a collection of lines, each followed by the line separator.
+
+    @param lines The lines to be written.
+   */
+  public void writeLines (Collection<? extends CharSequence> lines)
+      throws IOException {
+    writeAll (lines.iterator());
+  }
+
+  /**
+    Write every line returned by an iterator, each followed by the line
+    separator.
+
+    @param lines The lines to be written.
+   */
+  public void writeAll (Iterator<? extends CharSequence> lines)
+      throws IOException {
+    while (lines.hasNext()) {
+      writeLine (lines.next());
+    }
+  }
+
+  /**
+    Write some text, without a line separator.
+
+    @param text The text to be written.
+   */
+  public void write (CharSequence text)
+      throws IOException {
+    int i = 0;
+    int length = text.length();
+    while (i < length) {
+      if (chunk.count >= chunk.chars.length) {
+        submit();
+      }
+      int end = i + Math.min (length - i, chunk.chars.length - chunk.count);
+      if (text instanceof String) {
+        ((String)text).getChars (i, end, chunk.chars, chunk.count);
+        chunk.count = chunk.count + (end - i);
+        i = end;
+      } else {
+        while (i < end) {
+          chunk.chars [chunk.count] = text.charAt (i);
+          chunk.count++;
+          i++;
+        }
+      }
+    }
+  }
+
+  /**
+    Write the current chunk, or hand it to the background thread.
+   */
+  private void submit ()
+      throws IOException {
+    checkFailure();
+    if (full == null) {
+      writer.write (chunk.chars, 0, chunk.count);
+      chunk.count = 0;
+    } else {
+      try {
+        full.put (chunk);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException ("Interrupted while writing");
+      }
+      synchronized (this) {
+        submitted++;
+      }
+      
+      // The chunk now belongs to the background thread, so another must
+      // be obtained, however long that takes
+      boolean interrupted = false;
+      Chunk next = null;
+      while (next == null) {
+        try {
+          next = free.take();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      chunk = next;
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+    Write all of the lines written so far, and flush them to their
+    destination.
+   */
+  public void flush ()
+      throws IOException {
+    if (chunk.count > 0) {
+      submit();
+    }
+    if (full == null) {
+      writer.flush();
+    } else {
+      waitForWrites();
+    }
+    checkFailure();
+  }
+
+  /**
+    Write all of the lines written so far, stop any background thread,
+    and close the destination.
+   */
+  public void close ()
+      throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (chunk.count > 0) {
+        submit();
+      }
+    } finally {
+      if (full != null) {
+        stopBackground();
+      }
+      writer.close();
+    }
+    checkFailure();
+  }
+
+  /**
+    Tell the background thread to finish, and wait until it has, so that
+    the writer is not closed while it is still in use. An interrupt will
+    not cut this short, but is passed on once the thread has finished.
+   */
+  private void stopBackground () {
+    boolean interrupted = false;
+    boolean ended = false;
+    while (! ended) {
+      try {
+        full.put (END);
+        ended = true;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    while (backgroundThread.isAlive()) {
+      try {
+        backgroundThread.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+    Wait until the background thread has written every chunk handed to it.
+   */
+  private synchronized void waitForWrites ()
+      throws IOException {
+    try {
+      while (written < submitted) {
+        wait();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException ("Interrupted while flushing");
+    }
+  }
+
+  private void checkFailure ()
+      throws IOException {
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+    Write full chunks as they arrive, on the background thread, flushing
+    whenever there are no more waiting. After an error, or an interrupt, 
+    chunks are discarded but still returned, so that the thread writing 
+    lines does not wait forever; the thread only stops once it is told to.
+   */
+  private void writeChunks () {
+    boolean done = false;
+    while (! done) {
+      Chunk next;
+      try {
+        next = full.take();
+      } catch (InterruptedException e) {
+        if (failure == null) {
+          failure = new InterruptedIOException ("Background writer interrupted");
+        }
+        continue;
+      }
+      if (next == END) {
+        done = true;
+      } else {
+        if (failure == null) {
+          try {
+            writer.write (next.chars, 0, next.count);
+            if (full.isEmpty()) {
+              writer.flush();
+            }
+          } catch (IOException e) {
+            failure = e;
+          }
+        }
+        next.count = 0;
+        free.add (next);
+        synchronized (this) {
+          written++;
+          notifyAll();
+        }
+      }
+    }
+  }
+
+  /**
+    A buffer of characters waiting to be written.
+   */
+  static class Chunk {
+
+    char[]  chars;
+    int     count = 0;
+
+    Chunk (int size) {
+      chars = new char [size];
+    }
+  }
+
+}
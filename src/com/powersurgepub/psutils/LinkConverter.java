@@ -0,0 +1,289 @@
+/*
+ * Copyright 2026 - 2026 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psutils;
+
+  import java.io.*;
+  import java.nio.*;
+
+/**
+   Converts URLs found within text to HTML anchor tags, in a single pass,
+   writing the results to any Appendable. <p>
+
+   A URL begins with "http://" or "https://", and ends before the next
+   space, tab, carriage return, line feed or less-than sign, or at the end
+   of the text. A single period at the end of a URL is taken to be
+   punctuation, and left outside of the link. <p>
+
+   A converter holds no state between calls, so it may be shared freely
+   between threads. <p>
+ */
+public class LinkConverter {
+
+  /** Default number of characters to read at a time when streaming. */
+  public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+  public static final String HTTP = "http://";
+  public static final String HTTPS = "https://";
+
+  public static final String ANCHOR_START = "<a href=\"";
+  public static final String ANCHOR_MIDDLE = "\" target=\"ref\">";
+  public static final String ANCHOR_END = "</a>";
+
+  /** Returned when the end of the available input is reached too soon. */
+  private static final int NEED_MORE = -2;
+
+  /**
+    Creates a new converter.
+   */
+  public LinkConverter () {
+
+  }
+
+  /**
+    Convert any URLs within a string to HTML anchor tags.
+
+    @return The converted string; or the original string, if it contains
+            no URLs.
+    @param text The text possibly containing URLs.
+   */
+  public String convert (String text) {
+    int i = nextLink (text, 0, text.length(), true);
+    if (i < 0) {
+      return text;
+    }
+    StringBuilder after = new StringBuilder
+        (StringFromToTrie.expectedLength (text.length()));
+    after.append (text, 0, i);
+    try {
+      convert (text, i, text.length(), true, after);
+    } catch (IOException e) {
+      // Won't happen when appending to a StringBuilder
+    }
+    return after.toString();
+  }
+
+  /**
+    Convert any URLs within a sequence of characters to HTML anchor tags,
+    appending the results to the given output.
+
+    @param text  The text possibly containing URLs.
+    @param after Where the converted text is to be written.
+   */
+  public void convert (CharSequence text, Appendable after)
+      throws IOException {
+    convert (text, 0, text.length(), true, after);
+  }
+
+  /**
+    Convert a stream of characters, using the default chunk size.
+
+    @param in    The source of characters to be converted.
+    @param after Where the converted characters are to be written.
+   */
+  public void convert (Reader in, Appendable after)
+      throws IOException {
+    convert (in, after, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+    Convert a stream of characters, reading them a chunk at a time, and
+    appending the results to the given output. A URL that straddles the end
+    of one chunk is completed with characters from the next, so the result
+    is the same as if the entire input had been converted at once.
+
+    @param in        The source of characters to be converted.
+    @param after     Where the converted characters are to be written.
+    @param chunkSize The number of characters to read at a time.
+   */
+  public void convert (Reader in, Appendable after, int chunkSize)
+      throws IOException {
+    char[] buf = new char [Math.max (chunkSize, HTTPS.length() + 1)];
+    CharBuffer chunk = CharBuffer.wrap (buf);
+    int end = 0;
+    boolean endOfInput = false;
+    while (! endOfInput) {
+      if (end >= buf.length) {
+
+        // An unfinished URL fills the buffer: make room for more
+        char[] larger = new char [buf.length * 2];
+        System.arraycopy (buf, 0, larger, 0, end);
+        buf = larger;
+        chunk = CharBuffer.wrap (buf);
+      }
+      int count = in.read (buf, end, buf.length - end);
+      if (count < 0) {
+        endOfInput = true;
+      } else {
+        end = end + count;
+      }
+      int converted = convert (chunk, 0, end, endOfInput, after);
+
+      // Carry any unfinished URL over to the front of the buffer
+      end = end - converted;
+      System.arraycopy (buf, converted, buf, 0, end);
+    }
+  }
+
+  /**
+    Convert a range of characters, appending the results to the given output.
+    Characters outside of URLs are copied in runs, rather than one at a time.
+
+    @return The position of the first character not yet converted. This
+            will be the end of the range unless more input is expected
+            and a URL might be continued by it.
+    @param text       The characters to be converted.
+    @param start      The first position to be converted.
+    @param end        The end of the range to be converted (exclusive).
+    @param endOfInput True if no more input will follow this range.
+    @param after      Where the converted characters are to be written.
+   */
+  public int convert (CharSequence text, int start, int end,
+      boolean endOfInput, Appendable after)
+        throws IOException {
+    int i = start;
+    int copied = start;
+    boolean more = true;
+    while (more && i < end) {
+      int j = nextLink (text, i, end, endOfInput);
+      if (j < 0) {
+        i = end;
+        more = false;
+      }
+      else
+      if (j >= end) {
+        i = j - end;
+        more = false;
+      } else {
+        int k = endOfLink (text, j, end, endOfInput);
+        if (k < 0) {
+          i = j;
+          more = false;
+        } else {
+          StringFromToTrie.appendRun (text, copied, j, after);
+          after.append (ANCHOR_START);
+          after.append (text, j, k);
+          after.append (ANCHOR_MIDDLE);
+          after.append (text, j, k);
+          after.append (ANCHOR_END);
+          i = k;
+          copied = k;
+        }
+      }
+    }
+    StringFromToTrie.appendRun (text, copied, i, after);
+    return i;
+  }
+
+  /**
+    Find the start of the next URL.
+
+    @return The position at which the next URL begins; or -1 if there is
+            none; or, if a URL might begin at some position p once more
+            input is available, the value (end + p).
+    @param text       The characters being searched.
+    @param start      The first position to search.
+    @param end        The end of the characters available (exclusive).
+    @param endOfInput True if no more input will follow.
+   */
+  private int nextLink
+      (CharSequence text, int start, int end, boolean endOfInput) {
+    for (int i = start; i < end; i++) {
+      if (text.charAt (i) == 'h') {
+        int schemeLength = schemeAt (text, i, end, endOfInput);
+        if (schemeLength == NEED_MORE) {
+          return end + i;
+        }
+        else
+        if (schemeLength > 0) {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+    Determine whether a URL scheme begins at the given position.
+
+    @return The length of the scheme, including the slashes; 0 if there
+            is none; or NEED_MORE if there might be one once more input
+            is available.
+   */
+  private int schemeAt
+      (CharSequence text, int start, int end, boolean endOfInput) {
+    String scheme = HTTP;
+    int j = 0;
+    int i = start;
+    while (j < scheme.length()) {
+      if (i >= end) {
+        return (endOfInput ? 0 : NEED_MORE);
+      }
+      char c = text.charAt (i);
+      if (c == scheme.charAt (j)) {
+        i++;
+        j++;
+      }
+      else
+      if (j == 4 && scheme == HTTP) {
+        scheme = HTTPS;
+      } else {
+        return 0;
+      }
+    }
+    return scheme.length();
+  }
+
+  /**
+    Find the end of a URL.
+
+    @return The position following the last character of the URL, or -1 if
+            more input might still continue the URL.
+    @param text       The characters being converted.
+    @param start      The position at which the URL begins.
+    @param end        The end of the characters available (exclusive).
+    @param endOfInput True if no more input will follow.
+   */
+  private int endOfLink
+      (CharSequence text, int start, int end, boolean endOfInput) {
+    int k = start + schemeAt (text, start, end, true);
+    boolean done = false;
+    while (! done) {
+      if (k >= end) {
+        if (! endOfInput) {
+          return -1;
+        }
+        done = true;
+      } else {
+        char c = text.charAt (k);
+        if (c == ' '
+            || c == '\r'
+            || c == '\n'
+            || c == '\t'
+            || c == '<') {
+          done = true;
+        } else {
+          k++;
+        } // end if not a stopper character
+      }
+    } // end while looking for end of link
+    if (text.charAt (k - 1) == '.') {
+      k = k - 1;
+    }
+    return k;
+  }
+
+}
@@ -22,12 +22,20 @@ package com.powersurgepub.psutils;
 
   import java.io.File;
 
+  import java.io.FileInputStream;
+
   import java.io.FileNotFoundException;
 
+  import java.io.FileOutputStream;
+
   import java.io.FileWriter;
 
   import java.io.IOException;
 
+  import java.io.InputStream;
+
+  import java.io.OutputStream;
+
   import java.lang.Exception;
 
   import java.lang.Object;
@@ -36,8 +44,28 @@ package com.powersurgepub.psutils;
 
   import java.lang.System;
 
+  import java.text.SimpleDateFormat;
+
+  import java.util.Arrays;
+
+  import java.util.Calendar;
+
+  import java.util.Date;
+
   import java.util.Properties;
 
+  import java.util.concurrent.ExecutorService;
+
+  import java.util.concurrent.Executors;
+
+  import java.util.concurrent.ThreadFactory;
+
+  import java.util.concurrent.TimeUnit;
+
+  import java.util.regex.Pattern;
+
+  import java.util.zip.GZIPOutputStream;
+
              
 
 /**
@@ -48,6 +76,22 @@ package com.powersurgepub.psutils;
 
    
 
+   The file may be rotated once it reaches a given size, and/or at the 
+
+   first write after each midnight. A rotated file is renamed with the 
+
+   time of its rotation, as in "prog_log-20261018-142301-123.txt", and a new 
+
+   file is started at once. Compressing rotated files with gzip, and 
+
+   deleting all but a given number of the most recent, is then done on a 
+
+   background thread, so that writing lines never waits for it. By default, 
+
+   no rotation takes place, and each run overwrites the previous log.<p>
+
+   
+
    This code is copyright (c) 1999-2000 by Herb Bowie of PowerSurge Publishing. 
 
    All rights reserved. <p>
@@ -108,6 +152,30 @@ public class LogOutputDisk extends LogOutput {
 
   
 
+  /** Default number of rotated files to be kept. */
+
+  public    static final int      DEFAULT_RETENTION_COUNT = 7;
+
+  
+
+  /** Suffix added to rotated files once they are compressed. */
+
+  public    static final String   GZIP_SUFFIX = ".gz";
+
+  
+
+  /** Format of the time stamp added to the name of a rotated file. */
+
+  private   static final String   ROTATION_TIME_FORMAT = "yyyyMMdd-HHmmss-SSS";
+
+  
+
+  /** Pattern matched by the time stamp of a rotated file. */
+
+  private   static final String   ROTATION_TIME_PATTERN = "\\d{8}-\\d{6}-\\d{3}";
+
+  
+
   private    Properties     systemProperties;
 
   private    String         userDirString;
@@ -128,6 +196,48 @@ public class LogOutputDisk extends LogOutput {
 
   private    int            logFileLineLength;
 
+  
+
+  /** Rotate once the file holds at least this many characters; 0 for never. */
+
+  private    long           maxFileSize = 0;
+
+  
+
+  /** Rotate at the first write after each midnight? */
+
+  private    boolean        rotateDaily = false;
+
+  
+
+  /** Number of rotated files to be kept; 0 to keep them all. */
+
+  private    int            retentionCount = DEFAULT_RETENTION_COUNT;
+
+  
+
+  /** Compress rotated files with gzip? */
+
+  private    boolean        compressRotated = true;
+
+  
+
+  /** Number of characters written to the current file. */
+
+  private    long           fileSize = 0;
+
+  
+
+  /** Time at which the current file is due for daily rotation. */
+
+  private    long           nextRotationTime = Long.MAX_VALUE;
+
+  
+
+  /** Compresses and prunes rotated files; started on the first rotation. */
+
+  private    ExecutorService housekeeper = null;
+
 
 
   /**
@@ -190,6 +300,12 @@ public class LogOutputDisk extends LogOutput {
 
     }
 
+    if (isLogOk() && isRotationDue()) {
+
+      rotate();
+
+    }
+
     if (isLogOk()) {
 
       try { 
@@ -198,6 +314,8 @@ public class LogOutputDisk extends LogOutput {
 
         logFileBufWriter.newLine();
 
+        fileSize = fileSize + line.length() + System.lineSeparator().length();
+
       } catch (IOException e) {
 
         System.err.println (this.toString() + " suffered an I/O Exception on write.");
@@ -228,30 +346,568 @@ public class LogOutputDisk extends LogOutput {
 
     }
 
-    if (isLogOk()) {
+    if (isLogOk()
 
-      try {
+        && isRotating()
 
-        logFileWriter = new FileWriter (logFile);
+        && logFile.length() > 0) {
 
-        logFileBufWriter = new BufferedWriter (logFileWriter);
+      
 
-      } catch (IOException e) {
+      // Keep the log from the last run, rather than overwriting it
 
-        System.err.println (logFile.toString() + " suffered an I/O exception during open.");
+      File rotated = getRotatedFile (new Date (logFile.lastModified()));
 
-        setLogOk (false);
+      if (logFile.renameTo (rotated)) {
+
+        submitRotated (rotated);
 
       }
 
     }
 
+    if (isLogOk()) {
+
+      openFile();
+
+    }
+
     super.open();
 
   } // end open method
 
   
 
+  /**
+
+     Start writing a new, empty log file.
+
+   */
+
+  private void openFile () {
+
+    try {
+
+      logFileWriter = new FileWriter (logFile);
+
+      logFileBufWriter = new BufferedWriter (logFileWriter);
+
+      fileSize = 0;
+
+      nextRotationTime = getNextRotationTime();
+
+    } catch (IOException e) {
+
+      System.err.println (logFile.toString() + " suffered an I/O exception during open.");
+
+      setLogOk (false);
+
+    }
+
+  }
+
+  
+
+  /**
+
+     Set the size at which the log file is to be rotated. The size is
+
+     measured in characters, which will be close to the size in bytes for
+
+     most log lines.
+
+    
+
+     @param maxFileSize the number of characters after which the file is
+
+                        to be rotated, or zero to never rotate for size.
+
+   */
+
+  public void setMaxFileSize (long maxFileSize) {
+
+    this.maxFileSize = Math.max (0, maxFileSize);
+
+  }
+
+  
+
+  public long getMaxFileSize () {
+
+    return maxFileSize;
+
+  }
+
+  
+
+  /**
+
+     Indicate whether the log file is to be rotated at the first write
+
+     after each midnight.
+
+    
+
+     @param rotateDaily true to start a new file each day.
+
+   */
+
+  public void setRotateDaily (boolean rotateDaily) {
+
+    this.rotateDaily = rotateDaily;
+
+    if (isLogOpen()) {
+
+      nextRotationTime = getNextRotationTime();
+
+    }
+
+  }
+
+  
+
+  public boolean isRotateDaily () {
+
+    return rotateDaily;
+
+  }
+
+  
+
+  /**
+
+     Set the number of rotated files to be kept. Older ones are deleted
+
+     after each rotation.
+
+    
+
+     @param retentionCount the number of rotated files to keep, or zero to
+
+                           keep them all.
+
+   */
+
+  public void setRetentionCount (int retentionCount) {
+
+    this.retentionCount = Math.max (0, retentionCount);
+
+  }
+
+  
+
+  public int getRetentionCount () {
+
+    return retentionCount;
+
+  }
+
+  
+
+  /**
+
+     Indicate whether rotated files are to be compressed with gzip.
+
+    
+
+     @param compressRotated true to compress rotated files.
+
+   */
+
+  public void setCompressRotated (boolean compressRotated) {
+
+    this.compressRotated = compressRotated;
+
+  }
+
+  
+
+  public boolean isCompressRotated () {
+
+    return compressRotated;
+
+  }
+
+  
+
+  /**
+
+     Is the log file to be rotated for any reason?
+
+   */
+
+  private boolean isRotating () {
+
+    return (maxFileSize > 0 || rotateDaily);
+
+  }
+
+  
+
+  private boolean isRotationDue () {
+
+    return ((maxFileSize > 0 && fileSize >= maxFileSize)
+
+        || (rotateDaily && System.currentTimeMillis() >= nextRotationTime));
+
+  }
+
+  
+
+  /**
+
+     Returns the time of the next midnight, if rotating daily.
+
+   */
+
+  private long getNextRotationTime () {
+
+    if (! rotateDaily) {
+
+      return Long.MAX_VALUE;
+
+    }
+
+    Calendar next = Calendar.getInstance();
+
+    next.set (Calendar.HOUR_OF_DAY, 0);
+
+    next.set (Calendar.MINUTE, 0);
+
+    next.set (Calendar.SECOND, 0);
+
+    next.set (Calendar.MILLISECOND, 0);
+
+    next.add (Calendar.DATE, 1);
+
+    return next.getTimeInMillis();
+
+  }
+
+  
+
+  /**
+
+     Close the current log file, rename it with the current time, and start
+
+     a new one. Only renaming is done on the calling thread: compression
+
+     and deletion of old files are left to the background thread.
+
+   */
+
+  public void rotate () {
+
+    if (! (isLogOk() && isLogOpen())) {
+
+      return;
+
+    }
+
+    try {
+
+      logFileBufWriter.close();
+
+    } catch (IOException e) {
+
+      System.err.println (this.toString() + " suffered an I/O Exception on rotation.");
+
+    }
+
+    File rotated = getRotatedFile (new Date());
+
+    if (logFile.renameTo (rotated)) {
+
+      submitRotated (rotated);
+
+    } else {
+
+      System.err.println (logFile.toString() + " could not be renamed to " 
+
+          + rotated.getName() + "; overwriting it instead.");
+
+    }
+
+    openFile();
+
+  }
+
+  
+
+  /**
+
+     Returns an unused name for a file rotated at the given time, in the
+
+     same folder as the log file. The time is advanced by a millisecond
+
+     at a time until the name is unique, so that the names still sort
+
+     in the order of rotation.
+
+   */
+
+  private File getRotatedFile (Date rotationTime) {
+
+    SimpleDateFormat format = new SimpleDateFormat (ROTATION_TIME_FORMAT);
+
+    long time = rotationTime.getTime();
+
+    File rotated;
+
+    do {
+
+      String name = getStem() + "-" + format.format (new Date (time)) + getExtension();
+
+      rotated = new File (logFile.getParentFile(), name);
+
+      time++;
+
+    } while (rotated.exists()
+
+        || new File (rotated.getPath() + GZIP_SUFFIX).exists());
+
+    return rotated;
+
+  }
+
+  
+
+  /** Returns the log file name, up to its extension. */
+
+  private String getStem () {
+
+    int period = logFileName.lastIndexOf ('.');
+
+    if (period > 0) {
+
+      return logFileName.substring (0, period);
+
+    } else {
+
+      return logFileName;
+
+    }
+
+  }
+
+  
+
+  /** Returns the log file's extension, with its leading period, if any. */
+
+  private String getExtension () {
+
+    int period = logFileName.lastIndexOf ('.');
+
+    if (period > 0) {
+
+      return logFileName.substring (period);
+
+    } else {
+
+      return "";
+
+    }
+
+  }
+
+  
+
+  /**
+
+     Hand a rotated file to the background thread, starting it if needed.
+
+   */
+
+  private void submitRotated (final File rotated) {
+
+    if (housekeeper == null) {
+
+      housekeeper = Executors.newSingleThreadExecutor (new ThreadFactory() {
+
+        public Thread newThread (Runnable task) {
+
+          Thread thread = new Thread (task, "LogOutputDisk");
+
+          thread.setDaemon (true);
+
+          return thread;
+
+        }
+
+      });
+
+    }
+
+    final boolean compress = compressRotated;
+
+    final int keep = retentionCount;
+
+    housekeeper.execute (new Runnable() {
+
+      public void run () {
+
+        if (compress) {
+
+          compress (rotated);
+
+        }
+
+        if (keep > 0) {
+
+          deleteOldFiles (rotated.getParentFile(), keep);
+
+        }
+
+      }
+
+    });
+
+  }
+
+  
+
+  /**
+
+     Compress a rotated file with gzip, replacing it with the compressed
+
+     copy. The copy is written under a temporary name, so that a partly
+
+     compressed file is never mistaken for a finished one.
+
+   */
+
+  private void compress (File rotated) {
+
+    File compressed = new File (rotated.getPath() + GZIP_SUFFIX);
+
+    File partial = new File (compressed.getPath() + ".part");
+
+    try {
+
+      InputStream in = new FileInputStream (rotated);
+
+      try {
+
+        OutputStream out = new GZIPOutputStream (new FileOutputStream (partial));
+
+        try {
+
+          byte[] buffer = new byte [64 * 1024];
+
+          int count = in.read (buffer);
+
+          while (count >= 0) {
+
+            out.write (buffer, 0, count);
+
+            count = in.read (buffer);
+
+          }
+
+        } finally {
+
+          out.close();
+
+        }
+
+      } finally {
+
+        in.close();
+
+      }
+
+      if (partial.renameTo (compressed)) {
+
+        rotated.delete();
+
+      } else {
+
+        System.err.println (partial.toString() + " could not be renamed to " 
+
+            + compressed.getName());
+
+      }
+
+    } catch (IOException e) {
+
+      System.err.println (rotated.toString() + " suffered an I/O exception during compression.");
+
+      partial.delete();
+
+    }
+
+  }
+
+  
+
+  /**
+
+     Delete all but the most recent rotated files, compressed or not.
+
+    
+
+     @param folder the folder holding the log file.
+
+     @param keep   the number of rotated files to keep.
+
+   */
+
+  private void deleteOldFiles (File folder, int keep) {
+
+    final Pattern rotatedName = Pattern.compile (
+
+        Pattern.quote (getStem() + "-") 
+
+        + ROTATION_TIME_PATTERN 
+
+        + Pattern.quote (getExtension())
+
+        + "(" + Pattern.quote (GZIP_SUFFIX) + ")?");
+
+    File[] rotated = folder.listFiles (new java.io.FileFilter() {
+
+      public boolean accept (File file) {
+
+        return (file.isFile() && rotatedName.matcher (file.getName()).matches());
+
+      }
+
+    });
+
+    if (rotated == null || rotated.length <= keep) {
+
+      return;
+
+    }
+
+    
+
+    // Time stamps sort in the order of rotation
+
+    Arrays.sort (rotated);
+
+    for (int i = 0; i < rotated.length - keep; i++) {
+
+      if (! rotated [i].delete()) {
+
+        System.err.println (rotated [i].toString() + " could not be deleted.");
+
+      }
+
+    }
+
+  }
+
+  
+
+  /**
+
+     Close the log file, then wait for the background thread to finish
+
+     compressing and deleting any rotated files.
+
+   */
+
   public void close () {
 
     if (isLogOk() && isLogOpen()) {
@@ -270,6 +926,24 @@ public class LogOutputDisk extends LogOutput {
 
     }
 
+    if (housekeeper != null) {
+
+      housekeeper.shutdown();
+
+      try {
+
+        housekeeper.awaitTermination (Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+      } catch (InterruptedException e) {
+
+        Thread.currentThread().interrupt();
+
+      }
+
+      housekeeper = null;
+
+    }
+
     super.close();
 
   } // end close method
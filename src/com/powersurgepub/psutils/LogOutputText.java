@@ -27,21 +27,43 @@ package com.powersurgepub.psutils;
   import java.lang.Object;
   import java.lang.String;
   import java.lang.System;
+  import java.util.ArrayDeque;
   import java.util.Properties;
+  import java.awt.event.ActionEvent;
+  import java.awt.event.ActionListener;
   import javax.swing.*;
+  import javax.swing.text.BadLocationException;
 
              
 
 /**
 
    A log destination that writes log records 
-   to a JTextArea.
+   to a JTextArea. <p>
+   
+   Lines may be written from any thread. They are queued, and appended to
+   the text area in a single batch on the Swing event dispatch thread, 
+   no more often than once per flush interval, so that heavy logging does
+   not flood the text area's document. Once the text area holds more than 
+   a maximum number of lines, the oldest are removed. 
  */
 
 public class LogOutputText extends LogOutput {
 
   
 
+  /** Default milliseconds to wait for more lines before updating the text area. */
+
+  public static final int      DEFAULT_FLUSH_INTERVAL = 50;
+
+  
+
+  /** Default most lines to be kept in the text area. */
+
+  public static final int      DEFAULT_MAX_LINES = 10000;
+
+  
+
   private    JTextArea			logTextArea;
 
   private    BufferedWriter logFileBufWriter;
@@ -52,6 +74,30 @@ public class LogOutputText extends LogOutput {
 
   private    int            logFileLineLength;
 
+  
+
+  /** Lines waiting to be appended to the text area. */
+
+  private    ArrayDeque<String> pending = new ArrayDeque<String>();
+
+  
+
+  /** Has an update of the text area been scheduled? */
+
+  private    boolean        flushScheduled = false;
+
+  
+
+  /** Most lines to be kept in the text area; zero for no limit. */
+
+  private    int            maxLines = DEFAULT_MAX_LINES;
+
+  
+
+  /** Fires once on the event dispatch thread, to append pending lines. */
+
+  private    Timer          flushTimer;
+
 
 
   /**
@@ -62,6 +108,8 @@ public class LogOutputText extends LogOutput {
 
   public LogOutputText () {
 
+    initTimer();
+
   } 
 
   
@@ -80,8 +128,84 @@ public class LogOutputText extends LogOutput {
 
     logTextArea = textArea;
 
+    initTimer();
+
   } 
 
+  
+
+  private void initTimer () {
+
+    flushTimer = new Timer (DEFAULT_FLUSH_INTERVAL, new ActionListener() {
+
+      public void actionPerformed (ActionEvent event) {
+
+        flushNow();
+
+      }
+
+    });
+
+    flushTimer.setRepeats (false);
+
+  }
+
+  
+
+  /**
+
+     Set the time to wait after a line is written before appending it, 
+
+     along with any others written meanwhile, to the text area.
+
+    
+
+     @param flushInterval the delay, in milliseconds.
+
+   */
+
+  public void setFlushInterval (int flushInterval) {
+
+    flushTimer.setInitialDelay (Math.max (0, flushInterval));
+
+  }
+
+  
+
+  public int getFlushInterval () {
+
+    return flushTimer.getInitialDelay();
+
+  }
+
+  
+
+  /**
+
+     Set the most lines to be kept in the text area. The oldest lines
+
+     are removed when more are added.
+
+    
+
+     @param maxLines the number of lines to keep, or zero for no limit.
+
+   */
+
+  public synchronized void setMaxLines (int maxLines) {
+
+    this.maxLines = Math.max (0, maxLines);
+
+  }
+
+  
+
+  public synchronized int getMaxLines () {
+
+    return maxLines;
+
+  }
+
 	
 
 /**
@@ -94,7 +218,7 @@ public class LogOutputText extends LogOutput {
 
  */
 
-  public void setTextArea (JTextArea textArea) {
+  public synchronized void setTextArea (JTextArea textArea) {
 
     logTextArea = textArea;
 
@@ -112,11 +236,29 @@ public class LogOutputText extends LogOutput {
 
    */  
 
-  public void writeLine (String line) {
+  public synchronized void writeLine (String line) {
 
     if (logTextArea != null) {
 
-			logTextArea.append (line + GlobalConstants.LINE_FEED_STRING);
+      if (maxLines > 0 && pending.size() >= maxLines) {
+
+        
+
+        // It would only be trimmed from the text area
+
+        pending.removeFirst();
+
+      }
+
+      pending.addLast (line);
+
+      if (! flushScheduled) {
+
+        flushScheduled = true;
+
+        flushTimer.start();
+
+      }
 
     }
 
@@ -124,6 +266,110 @@ public class LogOutputText extends LogOutput {
 
   
 
+  /**
+
+     Append any lines waiting to be written to the text area: at once, if 
+
+     called on the event dispatch thread, and otherwise as soon as that 
+
+     thread is free.
+
+   */
+
+  public void flush () {
+
+    if (SwingUtilities.isEventDispatchThread()) {
+
+      flushNow();
+
+    } else {
+
+      SwingUtilities.invokeLater (new Runnable() {
+
+        public void run () {
+
+          flushNow();
+
+        }
+
+      });
+
+    }
+
+  }
+
+  
+
+  /**
+
+     Append the pending lines to the text area in one batch, then remove 
+
+     the oldest lines beyond the maximum. Runs on the event dispatch thread.
+
+   */
+
+  private void flushNow () {
+
+    StringBuilder text = new StringBuilder();
+
+    JTextArea textArea;
+
+    int max;
+
+    synchronized (this) {
+
+      flushScheduled = false;
+
+      flushTimer.stop();
+
+      for (String line : pending) {
+
+        text.append (line);
+
+        text.append (GlobalConstants.LINE_FEED_STRING);
+
+      }
+
+      pending.clear();
+
+      textArea = logTextArea;
+
+      max = maxLines;
+
+    }
+
+    if (textArea == null || text.length() == 0) {
+
+      return;
+
+    }
+
+    textArea.append (text.toString());
+
+    
+
+    // The line after the last line feed is empty, and does not count
+
+    int excess = textArea.getLineCount() - 1 - max;
+
+    if (max > 0 && excess > 0) {
+
+      try {
+
+        textArea.replaceRange ("", 0, textArea.getLineStartOffset (excess));
+
+      } catch (BadLocationException e) {
+
+        // Leave the text as it is
+
+      }
+
+    }
+
+  }
+
+  
+
   public void open () {
 
     super.open();
@@ -134,6 +380,8 @@ public class LogOutputText extends LogOutput {
 
   public void close () {
 
+    flush();
+
     super.close();
 
   } 
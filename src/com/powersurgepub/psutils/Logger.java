@@ -24,6 +24,9 @@ package com.powersurgepub.psutils;
   import java.lang.String;
   import java.lang.StringBuffer; 
   import java.util.*;
+  import java.util.concurrent.atomic.*;
+  import java.util.concurrent.locks.*;
+  import java.util.function.*;
              
 /**
    A mechanism for logging the results  
@@ -34,22 +37,68 @@ package com.powersurgepub.psutils;
   
    This class should be passed events and data. Significant events will
    be written to the log. Data will be written when it is related to an event
-   (or optionally all data can be written). 
+   (or optionally all data can be written). <p>
+   
+   Normally, lines are written to the LogOutput by the thread that records
+   each event. Once startAsync has been called, lines are instead placed in a
+   bounded ring buffer, without locking, and written by a single background
+   thread, so that threads recording events do not wait on one another or 
+   on the LogOutput. Events are still filtered, and failures still detected, 
+   immediately. The lines for a single event -- any related data line, the
+   event itself, and any note of failure -- are placed in the buffer 
+   together, so that they are never separated by another thread's lines. 
+   What happens when the buffer is full depends on the policy chosen: the 
+   thread may wait for room, or the lines may be dropped, or they may be 
+   dropped only if their severity is below a given level. <p>
+   
+   Lines written before any LogOutput has been set are held until one is,
+   up to a limit: once the hold area is full, the oldest held lines are 
+   discarded, and a note of how many were lost precedes the rest. 
  */
 
 public class Logger {
   
+  /** When the async buffer is full, wait for room. */
+  public static final  int        FULL_BLOCK = 0;
+  
+  /** When the async buffer is full, drop the line. */
+  public static final  int        FULL_DROP = 1;
+  
+  /** 
+    When the async buffer is full, drop the line if its severity is below the
+    drop threshold, and otherwise wait for room. 
+   */
+  public static final  int        FULL_DROP_BELOW_SEVERITY = 2;
+  
+  /** Default number of lines to be held until a LogOutput is set. */
+  public static final  int        DEFAULT_HOLD_CAPACITY = 1000;
+  
+  /** Default number of lines to be held in the async buffer. */
+  public static final  int        DEFAULT_ASYNC_CAPACITY = 8192;
+  
+  /** Longest time a thread will sleep while waiting for room in the buffer. */
+  private static final long       ASYNC_PARK_NANOS = 10000;
+  
+  /** Written in turn to have the LogOutput closed. */
+  private static final String[]   CLOSE_MARKER = new String[0];
+  
   /** Single shared occurrence of Logger. */
-  private static       Logger     sharedLogger;
+  private static volatile Logger  sharedLogger;
   
   /** Hold area for log messages received before any log output is available. */
-  private              ArrayList  hold = new ArrayList();
+  private ArrayDeque<String>      hold = new ArrayDeque<String>();
+  
+  /** Most lines to be kept in the hold area. */
+  private int                     holdCapacity = DEFAULT_HOLD_CAPACITY;
+  
+  /** Number of lines discarded from the hold area since it was last emptied. */
+  private long                    holdDropped = 0;
   
   /** 
      The actual output destination for the log records. Note that this
      could also be a sub-class of LogOutput.
    */
-  private LogOutput    log;
+  private volatile LogOutput log;
   
   /**
      Events with severities greater than or equal to this value will 
@@ -76,7 +125,40 @@ public class Logger {
      Has an event occurred whose significance has passed the failure 
      threshold?
    */
-  private boolean      failure = false;
+  private volatile boolean failure = false;
+  
+  /** Lines waiting to be written by the background thread, when async. */
+  private volatile RingBuffer asyncBuffer = null;
+  
+  /** Number of threads now writing lines, which stopAsync must wait for. */
+  private final AtomicInteger writers = new AtomicInteger();
+  
+  /** 
+     Notified whenever the background thread has written more lines, and 
+     when the last writer leaves after async writing has stopped.
+   */
+  private final Object flushLock = new Object();
+  
+  /** Guards the last data line, and whether it has been written. */
+  private final Object dataLock = new Object();
+  
+  /** What to do when the async buffer is full. */
+  private int          fullPolicy = FULL_BLOCK;
+  
+  /** Lines below this severity may be dropped, under FULL_DROP_BELOW_SEVERITY. */
+  private int          dropThreshold = LogEvent.MINOR;
+  
+  /** Number of groups of lines placed in the async buffer. */
+  private final AtomicLong accepted = new AtomicLong();
+  
+  /** Number of groups of lines taken from the async buffer and written. */
+  private volatile long written = 0;
+  
+  /** Number of lines dropped because the async buffer was full. */
+  private final AtomicLong dropped = new AtomicLong();
+  
+  /** Number of dropped lines already reported in the log. */
+  private long         droppedReported = 0;
   
   /** The last data line passed. */
   private  LogData     lastData;
@@ -96,10 +178,16 @@ public class Logger {
     @return A single, shared instance of Logger.
    */  
   public static Logger getShared() {
-    if (sharedLogger == null) {
-      sharedLogger = new Logger();
+    Logger shared = sharedLogger;
+    if (shared == null) {
+      synchronized (Logger.class) {
+        if (sharedLogger == null) {
+          sharedLogger = new Logger();
+        }
+        shared = sharedLogger;
+      }
     }
-    return sharedLogger;
+    return shared;
   }
   
   /**
@@ -118,10 +206,12 @@ public class Logger {
      @param log a destination for the log file.
    */
   public static Logger getShared (LogOutput log) {
-    if (sharedLogger == null) {
-      sharedLogger = new Logger(log);
+    synchronized (Logger.class) {
+      if (sharedLogger == null) {
+        sharedLogger = new Logger(log);
+      }
+      return sharedLogger;
     }
-    return sharedLogger;
   } // end method
 
   /**
@@ -150,21 +240,40 @@ public class Logger {
      @param data a line of data being processed by the caller.
    */  
   public void nextLine (LogData data) {
-    lastData = data;
-    dataLogged = false;
-    if (logAllData) {
-      writeData();
-    } // end if dataLogged
+    String dataLine = null;
+    synchronized (dataLock) {
+      lastData = data;
+      dataLogged = false;
+      if (logAllData) {
+        dataLine = takeData();
+      } // end if dataLogged
+    }
+    if (dataLine != null) {
+      writeLines (new String[] {dataLine}, LogEvent.NORMAL);
+    }
   } // end nextLine method
   
-  public synchronized static void sharedRecordEvent
+  public static void sharedRecordEvent
       (int severity, String message, boolean dataRelated) {
-    LogEvent event = new LogEvent(severity, message, dataRelated);
-    Logger.getShared().recordEvent (event);
+    Logger.getShared().recordEvent (severity, message, dataRelated);
   }
   
   /**
-     Creates a LogEvent object and then records it.
+     Would an event of the given severity be written to the log? Callers
+     may use this to avoid the work of building a message that would only 
+     be discarded.
+    
+     @return True if events of this severity are being logged.
+    
+     @param severity the severity of a possible event
+   */
+  public boolean isLoggable (int severity) {
+    return (severity >= logThreshold);
+  }
+  
+  /**
+     Creates a LogEvent object and then records it, if it is significant 
+     enough to be logged.
     
      @param severity      the severity of the event
     
@@ -173,9 +282,50 @@ public class Logger {
      @param dataRelated   indicates whether this event is related
                           to preceding data.
    */
-  public synchronized void recordEvent (int severity, String message, boolean dataRelated) {
-    LogEvent event = new LogEvent(severity, message, dataRelated);
-    recordEvent (event);
+  public void recordEvent (int severity, String message, boolean dataRelated) {
+    if (isLoggable (severity)) {
+      LogEvent event = new LogEvent(severity, message, dataRelated);
+      recordEvent (event);
+    }
+  }
+  
+  /**
+     Records an event, obtaining its message only if it is significant 
+     enough to be logged.
+    
+     @param severity      the severity of the event
+    
+     @param message       supplies the message to be written to the log
+    
+     @param dataRelated   indicates whether this event is related
+                          to preceding data.
+   */
+  public void recordEvent 
+      (int severity, Supplier<String> message, boolean dataRelated) {
+    if (isLoggable (severity)) {
+      recordEvent (new LogEvent (severity, message.get(), dataRelated));
+    }
+  }
+  
+  /**
+     Records an event, formatting its message only if it is significant 
+     enough to be logged.
+    
+     @param severity      the severity of the event
+    
+     @param dataRelated   indicates whether this event is related
+                          to preceding data.
+    
+     @param format        the format of the message, as for String.format
+    
+     @param args          the values to be formatted into the message
+   */
+  public void recordEvent 
+      (int severity, boolean dataRelated, String format, Object... args) {
+    if (isLoggable (severity)) {
+      recordEvent (new LogEvent 
+          (severity, String.format (format, args), dataRelated));
+    }
   }
   
   /**
@@ -186,11 +336,16 @@ public class Logger {
      @param event Something of interest that happened while processing
      data.
    */
-  public synchronized void recordEvent (LogEvent event) {
+  public void recordEvent (LogEvent event) {
     int severity = event.getSeverity();
     if (severity >= logThreshold) {
-      if ((! dataLogged) && (event.isDataRelated())) {
-        writeData();
+      String dataLine = null;
+      if (event.isDataRelated()) {
+        synchronized (dataLock) {
+          if (! dataLogged) {
+            dataLine = takeData();
+          }
+        }
       } // end of data logging
       String suffix;
       if (severity == LogEvent.NORMAL) {
@@ -202,41 +357,289 @@ public class Logger {
         }
         suffix = work.toString();
       }
-      writeLine (
+      ArrayList<String> lines = new ArrayList<String>(3);
+      if (dataLine != null) {
+        lines.add (dataLine);
+      }
+      lines.add (
         // "S" +
         // StringUtils.stringFromInt (severity, 1) +
         // " " + 
         event.getMessage() + suffix);
-      if (severity >= failureThreshold) {
+      boolean fatal = (severity >= failureThreshold);
+      if (fatal) {
         failure = true;
-        writeLine ("Fatal Error!!!");
+        lines.add ("Fatal Error!!!");
+      }
+      writeLines (lines.toArray (new String [lines.size()]), severity);
+      if (fatal) {
         close();
       }
     } // end if event is logged
   } // end nextEvent method
   
   /**
-     Writes the last data line to the LogOutput destination.
+     Returns the last data line, noting that it has now been written.
+     The caller must hold the data lock.
    */
-  private void writeData() {
-    writeLine (lastData.toString());
+  private String takeData () {
     dataLogged = true;
-  } // end writeData method
+    return lastData.toString();
+  } // end takeData method
   
-  private void writeLine (String line) {
+  /**
+     Writes a group of lines to the LogOutput destination, or passes them 
+     to the background thread to be written together.
+     
+     @param lines    The lines to be written.
+     @param severity The severity of the event causing the lines to be 
+                     written, used to decide whether they may be dropped.
+   */
+  private void writeLines (String[] lines, int severity) {
+    writers.incrementAndGet();
+    try {
+      RingBuffer buffer = asyncBuffer;
+      if (buffer == null) {
+        writeNow (lines);
+      }
+      else
+      if (lines != CLOSE_MARKER
+          && (fullPolicy == FULL_DROP 
+            || (fullPolicy == FULL_DROP_BELOW_SEVERITY 
+              && severity < dropThreshold))) {
+        if (buffer.offer (lines)) {
+          accepted.incrementAndGet();
+          LockSupport.unpark (buffer.consumer);
+        } else {
+          dropped.addAndGet (lines.length);
+        }
+      } else {
+        put (buffer, lines);
+      }
+    } finally {
+      if (writers.decrementAndGet() == 0 && asyncBuffer == null) {
+        
+        // stopAsync may be waiting for this thread
+        synchronized (flushLock) {
+          flushLock.notifyAll();
+        }
+      }
+    }
+  }
+  
+  /**
+     Places lines in the async buffer, waiting for room if necessary. The
+     background thread will not stop while this thread is a registered 
+     writer, so room will be found.
+   */
+  private void put (RingBuffer buffer, String[] lines) {
+    while (! buffer.offer (lines)) {
+      LockSupport.unpark (buffer.consumer);
+      LockSupport.parkNanos (this, ASYNC_PARK_NANOS);
+    }
+    accepted.incrementAndGet();
+    LockSupport.unpark (buffer.consumer);
+  }
+  
+  /**
+     Writes lines to the LogOutput destination, or holds them if there is 
+     no destination yet. The close marker closes the destination.
+   */
+  private synchronized void writeNow (String[] lines) {
+    if (lines == CLOSE_MARKER) {
+      if (log != null) {
+        log.close();
+      }
+    }
+    else
     if (log == null) {
-      hold.add (line);
+      for (int i = 0; i < lines.length; i++) {
+        if (holdCapacity <= 0) {
+          holdDropped++;
+        } else {
+          while (hold.size() >= holdCapacity) {
+            hold.removeFirst();
+            holdDropped++;
+          }
+          hold.addLast (lines [i]);
+        }
+      }
     } else {
-      log.writeLine (line);
+      for (int i = 0; i < lines.length; i++) {
+        log.writeLine (lines [i]);
+      }
     }
   }
   
   /**
-     Closes the LogOutput destination.
+     Closes the LogOutput destination. When async, the destination is closed
+     once the lines before it have been written.
    */
   public void close() {
-    if (log != null) {
-      log.close();
+    writeLines (CLOSE_MARKER, LogEvent.HIGH_SEVERITY);
+  }
+  
+  /**
+     Starts writing lines on a background thread, waiting for room whenever
+     the buffer is full. 
+   */
+  public void startAsync () {
+    startAsync (DEFAULT_ASYNC_CAPACITY, FULL_BLOCK, LogEvent.MINOR);
+  }
+  
+  /**
+     Starts writing lines on a background thread. 
+     
+     @param capacity      The number of lines the buffer can hold. This will 
+                          be rounded up to a power of two.
+     @param fullPolicy    What to do when the buffer is full: FULL_BLOCK, 
+                          FULL_DROP, or FULL_DROP_BELOW_SEVERITY.
+     @param dropThreshold Under FULL_DROP_BELOW_SEVERITY, lines for events
+                          below this severity are dropped when the buffer is 
+                          full, and other lines wait for room. Data lines
+                          written because all data is being logged have 
+                          NORMAL severity.
+   */
+  public synchronized void startAsync 
+      (int capacity, int fullPolicy, int dropThreshold) {
+    if (asyncBuffer != null) {
+      return;
+    }
+    this.fullPolicy = fullPolicy;
+    this.dropThreshold = dropThreshold;
+    final RingBuffer buffer = new RingBuffer (capacity);
+    buffer.consumer = new Thread (new Runnable() {
+      public void run () {
+        drain (buffer);
+      }
+    }, "Logger");
+    buffer.consumer.setDaemon (true);
+    buffer.consumer.start();
+    asyncBuffer = buffer;
+  }
+  
+  /**
+     Stops writing lines on a background thread, once all of the lines 
+     already accepted have been written. Lines are then written directly 
+     once more. 
+   */
+  public void stopAsync () {
+    RingBuffer buffer;
+    synchronized (this) {
+      buffer = asyncBuffer;
+      if (buffer == null) {
+        return;
+      }
+      asyncBuffer = null;
+    }
+    
+    // Threads that saw the buffer may still be adding lines to it: wait
+    // for them, while the background thread keeps making room
+    boolean interrupted = false;
+    synchronized (flushLock) {
+      while (writers.get() > 0) {
+        try {
+          flushLock.wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    buffer.consumer.interrupt();
+    while (buffer.consumer.isAlive()) {
+      try {
+        buffer.consumer.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (flushLock) {
+      flushLock.notifyAll();
+    }
+  }
+  
+  /**
+     Is a background thread writing the lines?
+   */
+  public boolean isAsync () {
+    return (asyncBuffer != null);
+  }
+  
+  /**
+     Waits until every line accepted so far has been written by the 
+     background thread. 
+   */
+  public void flush () {
+    long target = accepted.get();
+    synchronized (flushLock) {
+      while (asyncBuffer != null && written < target) {
+        try {
+          flushLock.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+  
+  /**
+     Returns the number of lines dropped because the async buffer was full.
+   */
+  public long getDroppedCount () {
+    return dropped.get();
+  }
+  
+  /**
+     Writes lines from the buffer as they arrive, on the background thread, 
+     until the thread is interrupted. Threads adding lines wake this one,
+     so it sleeps for as long as there is nothing to write.
+   */
+  private void drain (RingBuffer buffer) {
+    while (! Thread.currentThread().isInterrupted()) {
+      if (drainAvailable (buffer)) {
+        synchronized (flushLock) {
+          flushLock.notifyAll();
+        }
+      } else {
+        LockSupport.park (this);
+      }
+    }
+    drainAvailable (buffer);
+  }
+  
+  /**
+     Writes all of the lines now in the buffer, noting any that were dropped.
+     
+     @return True if any lines were written.
+   */
+  private boolean drainAvailable (RingBuffer buffer) {
+    boolean any = false;
+    String[] lines = buffer.poll();
+    while (lines != null) {
+      any = true;
+      reportDropped();
+      writeNow (lines);
+      written++;
+      lines = buffer.poll();
+    }
+    reportDropped();
+    return any;
+  }
+  
+  /**
+     Writes a line noting how many lines were dropped since the last such
+     note, if any were.
+   */
+  private void reportDropped () {
+    long count = dropped.get();
+    if (count > droppedReported) {
+      writeNow (new String[] {String.valueOf (count - droppedReported) 
+          + " log lines dropped because the log buffer was full"});
+      droppedReported = count;
     }
   }
   
@@ -259,16 +662,54 @@ public class Logger {
     
      @param A new LogOutput destination.
    */
-  public void setLog (LogOutput log) {
+  public synchronized void setLog (LogOutput log) {
     this.log = log;
-    if ((this.log != null) && (hold.size() > 0)) {
-      for (int i = 0; i < hold.size(); i++) {
-        String line = (String)hold.get (i);
+    if (this.log != null) {
+      if (holdDropped > 0) {
+        this.log.writeLine (String.valueOf (holdDropped) 
+            + " earlier log lines dropped before a log output was set");
+      }
+      for (String line : hold) {
         this.log.writeLine (line);
       }
+      hold = new ArrayDeque<String>();
+      holdDropped = 0;
     }
   }
   
+  /**
+     Sets the most lines to be held while there is no LogOutput. If more
+     are already held, the oldest are discarded.
+    
+     @param holdCapacity The number of lines to hold, or zero to hold none.
+   */
+  public synchronized void setHoldCapacity (int holdCapacity) {
+    this.holdCapacity = Math.max (0, holdCapacity);
+    while (hold.size() > this.holdCapacity) {
+      hold.removeFirst();
+      holdDropped++;
+    }
+  }
+  
+  public synchronized int getHoldCapacity () {
+    return holdCapacity;
+  }
+  
+  /**
+     Returns the number of lines now held, waiting for a LogOutput.
+   */
+  public synchronized int getHeldCount () {
+    return hold.size();
+  }
+  
+  /**
+     Returns the number of lines discarded from the hold area since
+     a LogOutput was last set.
+   */
+  public synchronized long getHoldDroppedCount () {
+    return holdDropped;
+  }
+  
   /**
     Gets the logging threshold.
    
@@ -326,5 +767,85 @@ public class Logger {
   public String toString () {
     return "Logger " + log.toString() + " threshold=" + logThreshold;
   } // end toString method
+  
+  /**
+     A bounded buffer of groups of lines, to which any number of threads may 
+     add without locking, and from which a single thread removes them. Each 
+     slot carries a sequence number telling whether it is ready to be filled 
+     or to be emptied. 
+   */
+  static class RingBuffer {
+    
+    /** The thread removing lines, to be woken when lines are added. */
+    Thread                        consumer;
+    
+    private final String[][]      lines;
+    private final AtomicLongArray sequences;
+    private final int             mask;
+    
+    /** The position at which the next line will be added. */
+    private final AtomicLong      tail = new AtomicLong();
+    
+    /** The position from which the next line will be removed. */
+    private long                  head = 0;
+    
+    RingBuffer (int capacity) {
+      int size = 2;
+      while (size < capacity) {
+        size = size * 2;
+      }
+      lines = new String [size][];
+      sequences = new AtomicLongArray (size);
+      for (int i = 0; i < size; i++) {
+        sequences.set (i, i);
+      }
+      mask = size - 1;
+    }
+    
+    /**
+       Adds a group of lines, unless the buffer is full.
+       
+       @return True if the lines were added.
+     */
+    boolean offer (String[] line) {
+      long position = tail.get();
+      while (true) {
+        int index = (int)(position & mask);
+        long difference = sequences.get (index) - position;
+        if (difference == 0) {
+          if (tail.compareAndSet (position, position + 1)) {
+            lines [index] = line;
+            sequences.set (index, position + 1);
+            return true;
+          }
+          position = tail.get();
+        }
+        else
+        if (difference < 0) {
+          return false;
+        } else {
+          position = tail.get();
+        }
+      }
+    }
+    
+    /**
+       Removes the next group of lines, if there is one. Only one thread 
+       may do this.
+       
+       @return The next group of lines, or null if the buffer is empty.
+     */
+    String[] poll () {
+      int index = (int)(head & mask);
+      if (sequences.get (index) != head + 1) {
+        return null;
+      }
+      String[] line = lines [index];
+      lines [index] = null;
+      sequences.set (index, head + lines.length);
+      head++;
+      return line;
+    }
+  }
 
 } // end Logger class
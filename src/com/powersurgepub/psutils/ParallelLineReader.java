@@ -0,0 +1,347 @@
+/*
+ * Copyright 2026 - 2026 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psutils;
+
+  import java.io.*;
+  import java.nio.*;
+  import java.nio.channels.*;
+  import java.nio.charset.*;
+  import java.util.*;
+  import java.util.concurrent.*;
+
+/**
+   Reads the lines of a file on many threads at once. The file is split
+   into ranges of bytes, each beginning just after a line feed, and each
+   range is read by its own task in a fork/join pool, using a memory-mapped
+   LineReader. <p>
+
+   So that every line can be passed its true line number, the lines in each
+   range are first counted, also in parallel, by scanning the raw bytes for
+   line terminators; this is much quicker than decoding them. <p>
+
+   Files can only be split in this way when line feeds and carriage returns
+   are encoded as single bytes, as they are in ASCII, ISO-8859-1 and UTF-8.
+   Files in other charsets are read as a single range. <p>
+ */
+public class ParallelLineReader {
+
+  /** Default number of bytes to be read by a single task. */
+  public static final long DEFAULT_RANGE_SIZE = 16 * 1024 * 1024;
+
+  /** Number of bytes to be examined at a time when looking for a line feed. */
+  private static final int SEARCH_BUFFER_SIZE = 8192;
+
+  private ForkJoinPool    pool;
+
+  private long            rangeSize = DEFAULT_RANGE_SIZE;
+
+  /**
+    Creates a reader using the common fork/join pool.
+   */
+  public ParallelLineReader () {
+    this (ForkJoinPool.commonPool());
+  }
+
+  /**
+    Creates a reader using the given fork/join pool.
+
+    @param pool The pool in which the reading tasks are to be run.
+   */
+  public ParallelLineReader (ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+    Set the approximate number of bytes to be read by a single task. Each
+    range is extended to the end of the line in which it would otherwise end.
+
+    @param rangeSize The number of bytes per task.
+   */
+  public void setRangeSize (long rangeSize) {
+    this.rangeSize = Math.max (1, rangeSize);
+  }
+
+  public long getRangeSize () {
+    return rangeSize;
+  }
+
+  /**
+    Read every line of a file, passing each to the handler. Lines from
+    different ranges are handled at the same time on different threads, so
+    the handler must be thread-safe, and should not depend on the order in
+    which lines arrive.
+
+    @return The number of lines in the file.
+    @param file    The file to be read.
+    @param charset The charset in which the file is encoded.
+    @param handler The handler for each line.
+   */
+  public long process (File file, Charset charset, LineHandler handler)
+      throws IOException {
+    FileChannel channel = new RandomAccessFile (file, "r").getChannel();
+    try {
+      long[] bounds = split (channel, charset);
+      int ranges = bounds.length - 1;
+      long[] firstLines = new long [ranges];
+      if (ranges > 1) {
+        long[] counts = new long [ranges];
+        invoke (new RangeTask (channel, charset, bounds, 0, ranges,
+            counts, null));
+        for (int i = 1; i < ranges; i++) {
+          firstLines [i] = firstLines [i - 1] + counts [i - 1];
+        }
+      }
+      return invoke (new RangeTask (channel, charset, bounds, 0, ranges,
+          firstLines, handler));
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+    Run a task, passing on any I/O exception it encountered.
+   */
+  private long invoke (RangeTask task)
+      throws IOException {
+    try {
+      return pool.invoke (task).longValue();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+    Divide a file into ranges, each beginning just after a line feed.
+
+    @return The starting position of each range, followed by the size of
+            the file.
+   */
+  private long[] split (FileChannel channel, Charset charset)
+      throws IOException {
+    long size = channel.size();
+    ArrayList<Long> bounds = new ArrayList<Long>();
+    bounds.add (Long.valueOf (0));
+    if (isSplittable (charset)) {
+      long start = 0;
+      while ((size - start) > rangeSize) {
+        long next = nextLineStart (channel, start + rangeSize, size);
+        if (next >= size) {
+          break;
+        }
+        bounds.add (Long.valueOf (next));
+        start = next;
+      }
+    }
+    bounds.add (Long.valueOf (size));
+    long[] result = new long [bounds.size()];
+    for (int i = 0; i < result.length; i++) {
+      result [i] = bounds.get(i).longValue();
+    }
+    return result;
+  }
+
+  /**
+    Are line terminators encoded as single bytes in this charset?
+   */
+  static boolean isSplittable (Charset charset) {
+    byte[] terminators = "\r\n".getBytes (charset);
+    return (terminators.length == 2
+        && terminators [0] == '\r'
+        && terminators [1] == '\n');
+  }
+
+  /**
+    Find the beginning of the first line starting after the given position.
+
+    @return The position following the next line feed, or the given size
+            if there are no more line feeds before it.
+   */
+  static long nextLineStart (FileChannel channel, long from, long size)
+      throws IOException {
+    ByteBuffer bytes = ByteBuffer.allocate (SEARCH_BUFFER_SIZE);
+    long position = from;
+    while (position < size) {
+      bytes.clear();
+      bytes.limit ((int)Math.min (SEARCH_BUFFER_SIZE, size - position));
+      int count = channel.read (bytes, position);
+      if (count <= 0) {
+        return size;
+      }
+      for (int i = 0; i < count; i++) {
+        if (bytes.get (i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position = position + count;
+    }
+    return size;
+  }
+
+  /**
+    Find the end of the last complete line in a range of bytes. A carriage
+    return at the very end of the range is not taken to end a line, since
+    a line feed may yet follow it.
+
+    @return The position following the last line terminator, or the start
+            of the range if it holds no complete lines.
+   */
+  static long lastLineEnd (FileChannel channel, long from, long size)
+      throws IOException {
+    ByteBuffer bytes = ByteBuffer.allocate (SEARCH_BUFFER_SIZE);
+    long end = size;
+    while (end > from) {
+      long position = Math.max (from, end - SEARCH_BUFFER_SIZE);
+      bytes.clear();
+      bytes.limit ((int)(end - position));
+      int count = 0;
+      while (bytes.hasRemaining() && count >= 0) {
+        count = channel.read (bytes, position + bytes.position());
+      }
+      for (int i = bytes.position() - 1; i >= 0; i--) {
+        byte b = bytes.get (i);
+        if (b == '\n'
+            || (b == '\r' && (position + i + 1) < size)) {
+          return position + i + 1;
+        }
+      }
+      end = position;
+    }
+    return from;
+  }
+
+  /**
+    Count the lines in a range of bytes, just as a LineReader would find
+    them: a carriage return followed by a line feed ends one line, and
+    anything following the last terminator makes one more.
+
+    @return The number of lines in the range.
+   */
+  private static long countLines (FileChannel channel, long start, long end)
+      throws IOException {
+    long lines = 0;
+    boolean afterCR = false;
+    byte last = '\n';
+    long position = start;
+    while (position < end) {
+      int length = (int)Math.min (LineReader.DEFAULT_MAP_SIZE, end - position);
+      MappedByteBuffer bytes
+          = channel.map (FileChannel.MapMode.READ_ONLY, position, length);
+      for (int i = 0; i < length; i++) {
+        byte b = bytes.get (i);
+        if (b == '\n') {
+          if (! afterCR) {
+            lines++;
+          }
+          afterCR = false;
+        }
+        else
+        if (b == '\r') {
+          lines++;
+          afterCR = true;
+        } else {
+          afterCR = false;
+        }
+        last = b;
+      }
+      position = position + length;
+    }
+    if (last != '\n' && last != '\r') {
+      lines++;
+    }
+    return lines;
+  }
+
+  /**
+    Counts or reads a group of ranges, splitting the group in half until
+    only one range is left.
+   */
+  static class RangeTask
+      extends RecursiveTask<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    private FileChannel channel;
+    private Charset     charset;
+    private long[]      bounds;
+    private int         first;
+    private int         last;
+
+    /**
+      The number of lines in each range, when counting; or the number of
+      lines preceding each range, when reading.
+     */
+    private long[]      lines;
+
+    /** The handler for each line; or null, when only counting. */
+    private LineHandler handler;
+
+    RangeTask (FileChannel channel, Charset charset, long[] bounds,
+        int first, int last, long[] lines, LineHandler handler) {
+      this.channel = channel;
+      this.charset = charset;
+      this.bounds = bounds;
+      this.first = first;
+      this.last = last;
+      this.lines = lines;
+      this.handler = handler;
+    }
+
+    protected Long compute () {
+      if ((last - first) <= 1) {
+        try {
+          if (handler == null) {
+            lines [first] = countLines
+                (channel, bounds [first], bounds [last]);
+            return Long.valueOf (lines [first]);
+          } else {
+            return Long.valueOf (readLines());
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException (e);
+        }
+      } else {
+        int middle = (first + last) >>> 1;
+        RangeTask firstHalf = new RangeTask
+            (channel, charset, bounds, first, middle, lines, handler);
+        RangeTask secondHalf = new RangeTask
+            (channel, charset, bounds, middle, last, lines, handler);
+        firstHalf.fork();
+        long secondCount = secondHalf.compute().longValue();
+        return Long.valueOf (firstHalf.join().longValue() + secondCount);
+      }
+    }
+
+    /**
+      Read the lines in a single range, passing each to the handler.
+      The reader is not closed, since the channel is shared.
+     */
+    private long readLines ()
+        throws IOException {
+      LineReader reader = new LineReader
+          (channel, bounds [first], bounds [last], charset);
+      long lineNumber = lines [first];
+      CharSequence line = reader.readLineSequence();
+      while (line != null) {
+        lineNumber++;
+        handler.handleLine (line, lineNumber);
+        line = reader.readLineSequence();
+      }
+      return lineNumber - lines [first];
+    }
+  }
+
+}
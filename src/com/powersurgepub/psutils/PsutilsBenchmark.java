@@ -0,0 +1,436 @@
+/*
+ * Copyright 2026 - 2026 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psutils;
+
+  import java.io.*;
+  import java.lang.management.*;
+  import java.util.*;
+
+/**
+   Measures the speed and allocation rate of the text processing methods
+   most heavily used by the other PowerSurge classes, so that one version
+   of psutils can be compared against another. <p>
+
+   Each benchmark is run against generated corpora of several sizes. After
+   a warm-up period, each one is run repeatedly for a fixed time, and the
+   time per operation, the throughput in characters, and the bytes allocated
+   per operation and per second are reported. Allocation figures come from
+   the JVM's per-thread allocation counters, and are shown as -1 on JVMs
+   that do not provide them. <p>
+
+   Usage: java com.powersurgepub.psutils.PsutilsBenchmark [milliseconds]
+   where milliseconds is the measurement time for each benchmark. <p>
+ */
+public class PsutilsBenchmark {
+
+  /** Approximate sizes, in characters, of the corpora to be generated. */
+  public static final int[]   CORPUS_SIZES = {1000, 100000, 1000000};
+
+  /** Default time to spend measuring each benchmark, in milliseconds. */
+  public static final long    DEFAULT_MEASURE_MILLIS = 1000;
+
+  /** Seed for the corpus generator, so that every run sees the same text. */
+  public static final long    CORPUS_SEED = 19510505;
+
+  private static final String[] WORDS = {
+    "the", "and", "of", "to", "a", "in", "for", "is", "on", "that",
+    "record", "export", "address", "street", "avenue", "road", "suite",
+    "Mister", "Bowie", "PowerSurge", "Publishing", "notes", "collection",
+    "Scottsdale", "Arizona", "transaction", "amount", "balance", "due",
+    "StringConverter", "thisIsCamelCase", "under_score", "hyphen-ated",
+    "Street", "St.", "Rd.", "Blvd", "email", "E-Mail", "Home", "Hm"
+  };
+
+  /** Results are folded in here so that the work cannot be optimized away. */
+  private static long   sink = 0;
+
+  private long          measureMillis;
+
+  private String        corpus;
+  private String[]      lines;
+  private String[]      words;
+  private String        encoded;
+  private File          corpusFile;
+
+  private StringConverter classicConverter;
+  private StringConverter compiledConverter;
+
+  /**
+     Runs all of the benchmarks.
+
+     @param args Optionally, the number of milliseconds to measure each one.
+   */
+  public static void main (String args[]) {
+    long millis = DEFAULT_MEASURE_MILLIS;
+    if (args.length > 0) {
+      millis = Long.parseLong (args[0]);
+    }
+    System.out.println ("psutils benchmarks, "
+        + String.valueOf (millis) + " ms per measurement");
+    System.out.println (formatColumns ("Benchmark", "Chars", "ns/op",
+        "MB/s", "B/op", "alloc MB/s"));
+    for (int i = 0; i < CORPUS_SIZES.length; i++) {
+      PsutilsBenchmark benchmark = new PsutilsBenchmark (CORPUS_SIZES [i], millis);
+      try {
+        benchmark.runAll();
+      } catch (IOException e) {
+        System.out.println ("I/O Exception: " + e.getMessage());
+      } finally {
+        benchmark.cleanUp();
+      }
+    }
+    System.out.println ("(checksum " + String.valueOf (sink) + ")");
+    System.out.flush();
+  }
+
+  /**
+     Prepares a corpus of the given size, along with anything the benchmarks
+     will need to work on it.
+
+     @param size          Approximate number of characters in the corpus.
+     @param measureMillis Time to spend measuring each benchmark.
+   */
+  public PsutilsBenchmark (int size, long measureMillis) {
+    this.measureMillis = measureMillis;
+    corpus = makeCorpus (size, new Random (CORPUS_SEED));
+    lines = corpus.split ("\r\n|\n|\r");
+    words = corpus.split ("\\s+");
+    encoded = StringUtils.encodeHTML (corpus);
+    classicConverter = StringConverter.getXML();
+    compiledConverter = StringConverter.getXML();
+    compiledConverter.setCompiled (true);
+  }
+
+  /**
+     Generates some realistic text: words, names, addresses, dates, URLs,
+     quotations, markup characters and assorted line endings.
+
+     @return The generated text.
+     @param size   Approximate number of characters to generate.
+     @param random Source of random choices.
+   */
+  public static String makeCorpus (int size, Random random) {
+    StringBuilder text = new StringBuilder (size + 200);
+    int lineLength = 0;
+    while (text.length() < size) {
+      int choice = random.nextInt (40);
+      if (choice == 0) {
+        text.append (String.valueOf (100 + random.nextInt (9900)));
+        text.append (" Main Street, Suite ");
+        text.append (String.valueOf (random.nextInt (500)));
+      }
+      else
+      if (choice == 1) {
+        text.append (StringUtils.stringFromInt (1 + random.nextInt (12), 2));
+        text.append ('/');
+        text.append (StringUtils.stringFromInt (1 + random.nextInt (28), 2));
+        text.append ('/');
+        text.append (String.valueOf (1950 + random.nextInt (70)));
+      }
+      else
+      if (choice == 2) {
+        text.append (random.nextBoolean() ? "http://" : "https://");
+        text.append ("www.powersurgepub.com/software/page");
+        text.append (String.valueOf (random.nextInt (100)));
+        text.append (".html");
+      }
+      else
+      if (choice == 3) {
+        text.append ("\"quoted phrase\"");
+      }
+      else
+      if (choice == 4) {
+        text.append ("Fish & Chips <em>daily</em>");
+      }
+      else
+      if (choice == 5) {
+        text.append ("it's *emphasized* -- isn't it...");
+      } else {
+        text.append (WORDS [random.nextInt (WORDS.length)]);
+      }
+      lineLength = lineLength + 10;
+      if (lineLength > 60 + random.nextInt (40)) {
+        int ending = random.nextInt (10);
+        if (ending == 0) {
+          text.append (GlobalConstants.CARRIAGE_RETURN);
+          text.append (GlobalConstants.LINE_FEED);
+        }
+        else
+        if (ending == 1) {
+          text.append (GlobalConstants.TAB);
+        } else {
+          text.append (GlobalConstants.LINE_FEED);
+        }
+        lineLength = 0;
+      } else {
+        text.append (' ');
+      }
+    }
+    return text.toString();
+  }
+
+  /**
+     Runs each benchmark against this corpus.
+   */
+  public void runAll () throws IOException {
+
+    corpusFile = File.createTempFile ("psutils", ".txt");
+    Writer writer = new BufferedWriter (new FileWriter (corpusFile));
+    writer.write (corpus);
+    writer.close();
+
+    run ("StringConverter.convert", new Benchmark() {
+      int run () {
+        return classicConverter.convert (corpus).length();
+      }
+    });
+
+    run ("StringConverter.convert compiled", new Benchmark() {
+      int run () {
+        return compiledConverter.convert (corpus).length();
+      }
+    });
+
+    run ("StringUtils.encodeHTML", new Benchmark() {
+      int run () {
+        return StringUtils.encodeHTML (corpus).length();
+      }
+    });
+
+    run ("StringUtils.decodeHTML", new Benchmark() {
+      int run () {
+        return StringUtils.decodeHTML (encoded).length();
+      }
+    });
+
+    run ("StringUtils.wordSpace", new Benchmark() {
+      int run () {
+        int result = 0;
+        for (int i = 0; i < lines.length; i++) {
+          result = result + StringUtils.wordSpace (lines [i], true).length();
+        }
+        return result;
+      }
+    });
+
+    run ("StringUtils.almostEqual", new Benchmark() {
+      int run () {
+        int result = 0;
+        for (int i = 1; i < words.length; i++) {
+          if (words [i].length() > 0
+              && words [i - 1].length() > 0
+              && StringUtils.almostEqual (words [i - 1], words [i])) {
+            result++;
+          }
+        }
+        return result;
+      }
+    });
+
+    run ("StringUtils.indexOfIgnoreCase", new Benchmark() {
+      int run () {
+        int result = 0;
+        int i = StringUtils.indexOfIgnoreCase ("street", "STREET", corpus, 0);
+        while (i >= 0) {
+          result++;
+          i = StringUtils.indexOfIgnoreCase ("street", "STREET", corpus, i + 1);
+        }
+        return result;
+      }
+    });
+
+    run ("StringUtils.convertLinks", new Benchmark() {
+      int run () {
+        return StringUtils.convertLinks (corpus).length();
+      }
+    });
+
+    run ("StringScanner.getNextWord", new Benchmark() {
+      int run () {
+        int result = 0;
+        for (int i = 0; i < lines.length; i++) {
+          StringScanner scanner = new StringScanner (lines [i]);
+          String word = scanner.getNextWord();
+          while (word.length() > 0) {
+            result++;
+            word = scanner.getNextWord();
+          }
+        }
+        return result;
+      }
+    });
+
+    run ("StringPattern", new Benchmark() {
+      int run () {
+        int result = 0;
+        for (int i = 0; i < words.length; i++) {
+          StringPattern pattern = new StringPattern (words [i]);
+          result = result + pattern.getDigitCount() + pattern.getLength();
+        }
+        return result;
+      }
+    });
+
+    run ("CommonMarkup.markup", new Benchmark() {
+      int run () {
+        int result = 0;
+        CommonMarkup markup = new CommonMarkup ("", "html");
+        for (int i = 0; i < lines.length; i++) {
+          result = result + markup.markup (lines [i], true).length();
+        }
+        return result;
+      }
+    });
+
+    run ("TextFile.readLine", new Benchmark() {
+      int run () throws IOException {
+        int result = 0;
+        TextFile textFile = new TextFile (corpusFile);
+        textFile.setLog (new Logger (new LogOutputNone()));
+        String line = textFile.readLine();
+        while (! textFile.isAtEnd()) {
+          result = result + line.length();
+          line = textFile.readLine();
+        }
+        return result;
+      }
+    });
+
+    run ("TextFile.readLineSequence fast", new Benchmark() {
+      int run () throws IOException {
+        int result = 0;
+        TextFile textFile = new TextFile (corpusFile);
+        textFile.setLog (new Logger (new LogOutputNone()));
+        textFile.setFastInput (true);
+        CharSequence line = textFile.readLineSequence();
+        while (! textFile.isAtEnd()) {
+          result = result + line.length();
+          line = textFile.readLineSequence();
+        }
+        return result;
+      }
+    });
+  }
+
+  /**
+     Warm up a benchmark, then measure and report it.
+
+     @param name      The name to be reported for the benchmark.
+     @param benchmark The work to be measured.
+   */
+  private void run (String name, Benchmark benchmark) throws IOException {
+
+    // Warm up for half the measurement time, to give the JIT a chance
+    long warmUpEnd = System.nanoTime() + (measureMillis * 500000);
+    while (System.nanoTime() < warmUpEnd) {
+      sink = sink + benchmark.run();
+    }
+
+    long ops = 0;
+    long startBytes = allocatedBytes();
+    long start = System.nanoTime();
+    long stop = start + (measureMillis * 1000000);
+    long now = start;
+    while (now < stop) {
+      sink = sink + benchmark.run();
+      ops++;
+      now = System.nanoTime();
+    }
+    long endBytes = allocatedBytes();
+
+    double nanos = (double)(now - start);
+    double nanosPerOp = nanos / ops;
+    double charsPerSecond = (corpus.length() * (double)ops) / (nanos / 1.0e9);
+    String bytesPerOp = "-1";
+    String allocRate = "-1";
+    if (startBytes >= 0 && endBytes >= 0) {
+      double bytes = (double)(endBytes - startBytes);
+      bytesPerOp = String.valueOf (Math.round (bytes / ops));
+      allocRate = format (bytes / (nanos / 1.0e9) / (1024 * 1024));
+    }
+    System.out.println (formatColumns (name,
+        String.valueOf (corpus.length()),
+        String.valueOf (Math.round (nanosPerOp)),
+        format (charsPerSecond / (1024 * 1024)),
+        bytesPerOp,
+        allocRate));
+  }
+
+  /**
+     Returns the number of bytes allocated so far by the current thread,
+     or -1 if the JVM cannot say.
+   */
+  private static long allocatedBytes () {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean sunBean
+          = (com.sun.management.ThreadMXBean)bean;
+      if (sunBean.isThreadAllocatedMemorySupported()
+          && sunBean.isThreadAllocatedMemoryEnabled()) {
+        return sunBean.getThreadAllocatedBytes (Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+
+  private static String format (double value) {
+    return String.valueOf (Math.round (value * 10) / 10.0);
+  }
+
+  private static String formatColumns (String name, String chars,
+      String nanos, String throughput, String bytes, String rate) {
+    StringBuilder line = new StringBuilder();
+    line.append (name);
+    pad (line, 36);
+    line.append (chars);
+    pad (line, 46);
+    line.append (nanos);
+    pad (line, 60);
+    line.append (throughput);
+    pad (line, 70);
+    line.append (bytes);
+    pad (line, 84);
+    line.append (rate);
+    return line.toString();
+  }
+
+  private static void pad (StringBuilder line, int column) {
+    do {
+      line.append (' ');
+    } while (line.length() < column);
+  }
+
+  /**
+     Delete the temporary copy of the corpus.
+   */
+  public void cleanUp () {
+    if (corpusFile != null) {
+      corpusFile.delete();
+    }
+  }
+
+  /**
+     One piece of work to be measured. Each run should process the entire
+     corpus, and return some result derived from its work.
+   */
+  abstract static class Benchmark {
+
+    abstract int run () throws IOException;
+
+  }
+
+} // end of class PsutilsBenchmark
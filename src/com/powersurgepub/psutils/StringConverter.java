@@ -16,6 +16,7 @@
 
 package com.powersurgepub.psutils;
 
+  import java.io.*;
   import java.util.*;
 
 /**
@@ -153,18 +154,27 @@ public class StringConverter {
   
   public static final String ELLIPSIS = "...";
   
+  private static final StringConverter SHARED_HTML_ENCODER
+      = getMinimumHTML().lock (true);
   
+  private static final StringConverter SHARED_HTML_DECODER
+      = getMinimumHTML().lock (false);
   
-  private ArrayList list = new ArrayList();
+  /** Pairs sorted and indexed for conversion in the forward direction. */
+  private StringFromToIndex forwardIndex = new StringFromToIndex (true);
+  
+  /** Pairs sorted and indexed for conversion in the reverse direction. */
+  private StringFromToIndex reverseIndex = new StringFromToIndex (false);
   
   private boolean   forward = true;
   
-  private boolean   listPrepared = false;
+  private boolean   compiled = false;
+  
+  private boolean   locked = false;
   
-  private String    firstChars;
+  private StringFromToTrie forwardTrie = null;
   
-  private ArrayList firstCharFirstString;
-  private ArrayList firstCharLastString;
+  private StringFromToTrie reverseTrie = null;
   
   /** 
     Creates a new instance of StringConverter. 
@@ -177,12 +187,15 @@ public class StringConverter {
     Creates a new instance of StringConverter. 
    */
   public StringConverter (StringConverter anotherList) {
-    list.addAll (anotherList.getList());
+    addAll (anotherList);
   }
   
   public void addAll (StringConverter anotherList) {
-    list.addAll (anotherList.getList());
-    checkPreparation (false);
+    checkLocked();
+    forwardIndex.addAll (anotherList.getList());
+    reverseIndex.addAll (anotherList.getList());
+    forwardTrie = null;
+    reverseTrie = null;
   }
   
   public static StringConverter getCrLfVisible () {
@@ -209,6 +222,30 @@ public class StringConverter {
     return convertMinimumHTML;
   }
   
+  /**
+    Returns a shared, locked converter that encodes common problem characters
+    into equivalent HTML. The same instance is returned on every call, and
+    may be used by any number of threads at once. 
+   
+    @return A shared converter for the minimum HTML rules, set to convert
+            in the forward direction. 
+   */
+  public static StringConverter getSharedHTMLEncoder () {
+    return SHARED_HTML_ENCODER;
+  }
+  
+  /**
+    Returns a shared, locked converter that decodes HTML produced by the
+    shared encoder. The same instance is returned on every call, and
+    may be used by any number of threads at once. 
+   
+    @return A shared converter for the minimum HTML rules, set to convert
+            in the reverse direction. 
+   */
+  public static StringConverter getSharedHTMLDecoder () {
+    return SHARED_HTML_DECODER;
+  }
+  
   /**
     Add rules to convert common problem characters into equivalent HTML.
    */
@@ -247,9 +284,12 @@ public class StringConverter {
     @param fromTo Another from/to pair to be added to the list.
    */
   public void add (StringFromTo fromTo) {
-    list.add (fromTo);
+    checkLocked();
+    forwardIndex.add (fromTo);
+    reverseIndex.add (fromTo);
     // System.out.println ("Adding " + fromTo.toString());
-    checkPreparation (false);
+    forwardTrie = null;
+    reverseTrie = null;
   }
   
   /**
@@ -259,8 +299,7 @@ public class StringConverter {
     @param to   To string.
    */
   public void add (String from, String to) {
-    list.add (new StringFromTo (from, to));
-    checkPreparation (false);
+    add (new StringFromTo (from, to));
   }
   
   /**
@@ -272,13 +311,14 @@ public class StringConverter {
                      string?
    */
   public void add (String from, String to, boolean preferred) {
-    list.add (new StringFromTo (from, to, preferred));
-    checkPreparation (false);
+    add (new StringFromTo (from, to, preferred));
   }
   
   /**
     Sets the desired direction of conversion: forward (from -> to) or 
-    backward (to -> from).
+    backward (to -> from). Each direction is prepared separately, the first
+    time it is used, so switching back and forth does not require the list
+    to be prepared again. 
    
     @param forward True if the before string should have from strings replaced
                    with to strings, false if the to strings should be replaced
@@ -286,12 +326,12 @@ public class StringConverter {
    */
   public void setForward (boolean forward) {
     if (forward != isForward()) {
-      for (int i = 0; i < list.size(); i++) {
-        StringFromTo ft = (StringFromTo)list.get(i);
+      checkLocked();
+      for (int i = 0; i < forwardIndex.size(); i++) {
+        StringFromTo ft = forwardIndex.get(i);
         ft.setForward (forward);
       }
       this.forward = forward;
-      checkPreparation (false);
     } // end if direction is changing
   } // end method
   
@@ -299,164 +339,306 @@ public class StringConverter {
     return forward;
   }
   
+  /**
+    Indicates whether conversions should be performed with a compiled trie
+    of the from strings, rather than by testing each from string that 
+    shares the current character as its first. Both modes replace the 
+    longest from string found at each position, but the compiled mode 
+    makes a single pass through the input, and is much faster when the 
+    list contains many from/to pairs. 
+   
+    @param compiled True to convert using a compiled trie. 
+   */
+  public void setCompiled (boolean compiled) {
+    if (compiled != this.compiled) {
+      checkLocked();
+      this.compiled = compiled;
+      forwardTrie = null;
+      reverseTrie = null;
+    }
+  }
+  
+  public boolean isCompiled() {
+    return compiled;
+  }
+  
+  /**
+    Sets the direction of conversion, compiles the list in both directions, 
+    and then locks this converter against any further changes. Once locked, 
+    a converter never modifies its own state, so a single instance may be 
+    shared by many threads, using convert, convertForward or convertReverse. 
+   
+    @param forward True to convert from strings to to strings, false to
+                   convert to strings back to from strings. 
+   
+    @return This converter, now locked. 
+   */
+  public StringConverter lock (boolean forward) {
+    setForward (forward);
+    setCompiled (true);
+    prepare (true);
+    prepare (false);
+    locked = true;
+    return this;
+  }
+  
+  public boolean isLocked() {
+    return locked;
+  }
+  
+  /**
+    Make sure this converter has not been locked before changing it. 
+   */
+  private void checkLocked () {
+    if (locked) {
+      throw new UnsupportedOperationException 
+          ("StringConverter has been locked");
+    }
+  }
+  
   /**
     Convert an old string to a new string, using the list of from/to
-    pairs already passed to this converter.
+    pairs already passed to this converter. If none of the from strings
+    appear in the old string, then the old string itself is returned, 
+    without being copied. 
    
     @return         String after conversion.
     @param  before  String to be converted.
    */
   public String convert (String before) {
-    checkPreparation (true);
+    return convert (before, forward);
+  }
+  
+  /**
+    Convert an old string to a new string, replacing from strings with
+    to strings, regardless of the direction currently set. 
+   
+    @return         String after conversion.
+    @param  before  String to be converted.
+   */
+  public String convertForward (String before) {
+    return convert (before, true);
+  }
+  
+  /**
+    Convert an old string to a new string, replacing to strings with
+    from strings, regardless of the direction currently set. 
+   
+    @return         String after conversion.
+    @param  before  String to be converted.
+   */
+  public String convertReverse (String before) {
+    return convert (before, false);
+  }
+  
+  /**
+    Convert an old string to a new string in the given direction. 
+   
+    @return         String after conversion.
+    @param  before  String to be converted.
+    @param  forward True to replace from strings with to strings, false to
+                    replace to strings with from strings. 
+   */
+  private String convert (String before, boolean forward) {
+    StringFromToIndex index = checkPreparation (forward);
+    if (compiled) {
+      return getTrie(forward).convert (before);
+    }
+    int length = before.length();
     int beforeIndex = 0;
-    int firstCharIndex = -1;
-    char beforeChar = ' ';
-    Integer firstFromIndexInteger;
-    int firstFromIndex;
-    Integer lastFromIndexInteger;
-    int lastFromIndex;
+    int copied = 0;
     int fromIndex;
-    StringFromTo fromTo = new StringFromTo (" ", " ");
-    boolean foundMatch = false;
-    StringBuffer after = new StringBuffer();
-    while (beforeIndex < before.length()) {
-      beforeChar = before.charAt (beforeIndex);
-      firstCharIndex = firstChars.indexOf (beforeChar);
-      if (firstCharIndex < 0) {
+    StringFromTo fromTo;
+    StringBuilder after = null;
+    while (beforeIndex < length) {
+      fromIndex = matchAt (index, before, beforeIndex);
+      if (fromIndex < 0) {
         
-        // None of the from strings start with this character
-        after.append (beforeChar);
+        // No from string starts at this position
         beforeIndex++;
         
       } else {
-        firstFromIndexInteger 
-          = (Integer)firstCharFirstString.get(firstCharIndex);
-        firstFromIndex = firstFromIndexInteger.intValue();
-        lastFromIndexInteger
-          = (Integer)firstCharLastString.get(firstCharIndex);
-        lastFromIndex = lastFromIndexInteger.intValue();
-        fromIndex = firstFromIndex;
-        foundMatch = false;
-        while ((! foundMatch)
-            && (fromIndex <= lastFromIndex)) {
-          fromTo = get (fromIndex);
-          if (fromTo.fromEquals (before, beforeIndex)) {
-            foundMatch = true;
-          } else {
-            fromIndex++;
-          }
+        if (after == null) {
+          after = new StringBuilder (StringFromToTrie.expectedLength (length));
         }
-        if (foundMatch) {
-          after.append (fromTo.getTo());
-          beforeIndex = beforeIndex + fromTo.getFromLength();
-        } else {
-          
-          // First character matched, but no match on complete from string
-          after.append (beforeChar);
-          beforeIndex++;
-          
-        } // end if no matching from string found
-      } // end if got a match on first character 
+        fromTo = index.get (fromIndex);
+        after.append (before, copied, beforeIndex);
+        after.append (fromTo.getTo (forward));
+        beforeIndex = beforeIndex + fromTo.getFromLength (forward);
+        copied = beforeIndex;
+      } // end if got a match 
     } // end  of characters in before string
     
+    if (after == null) {
+      return before;
+    }
+    after.append (before, copied, length);
     return after.toString();
   } // end convert method
   
   /**
-    See if we need to prepare list for use. We only need to do this once,
-    unless StringFromTo objects are added to the list after the initial
-    preparation.
+    Find the first from string, in prepared order, that appears in the 
+    passed string at the given position. 
    
-    @param expected True if we expect the list to be prepared, 
-                    false otherwise. 
+    @return The index of the matching from/to pair, or -1 if none match. 
+    @param  index       The prepared index for the direction of conversion.
+    @param  before      String being converted. 
+    @param  beforeIndex Position within the string being converted.
    */
-  private void checkPreparation (boolean expected) {
-    if (listPrepared && expected) {
-      // List is ready and it should be: ok
+  private int matchAt 
+      (StringFromToIndex index, String before, int beforeIndex) {
+    int firstCharIndex = index.indexOfFirstChar (before.charAt (beforeIndex));
+    if (firstCharIndex < 0) {
+      // None of the from strings start with this character
+      return -1;
     }
-    else
-    if ((! listPrepared) && (! expected)) {
-      // list isn't ready and it doesn't need to be: ok
-    } else {
-      prepare();
+    int lastFromIndex = index.getLastString (firstCharIndex);
+    for (int fromIndex = index.getFirstString (firstCharIndex); 
+        fromIndex <= lastFromIndex; 
+        fromIndex++) {
+      if (index.get(fromIndex).fromEquals 
+          (before, beforeIndex, index.isForward())) {
+        return fromIndex;
+      }
     }
+    // First character matched, but no match on complete from string
+    return -1;
   }
   
   /**
-    Prepare the list for use. This should be done once, after the contents
-    of the list has been finalized. 
+    Convert a sequence of characters, appending the results to the given
+    output, using the list of from/to pairs already passed to this 
+    converter. 
+   
+    @param before The characters to be converted.
+    @param after  Where the converted characters are to be written.
    */
-  public void prepare () {
-    
-    // Sort the list: longer from strings go first
-    // System.out.println ("Starting StringConverter preparation");
-    boolean swapped = true;
-    int counter = 0;
-    while (swapped) {
-        // && counter < 20) {
-      swapped = false;
-      for (int i = 0, j = 1; j < list.size(); i++, j++) {
-        StringFromTo ft1 = (StringFromTo)list.get(i);
-        StringFromTo ft2 = (StringFromTo)list.get(j);
-        if (ft1.compareTo (ft2) > 0) {
-          list.set (i, ft2);
-          list.set (j, ft1);
-          // System.out.println ("Swapping...");
-          // System.out.println ("  Before:");
-          // System.out.println ("    " + String.valueOf (i) + " " + ft1.toString());
-          // System.out.println ("    " + String.valueOf (j) + " " + ft2.toString());
-          // System.out.println ("  After:");
-          // System.out.println ("    " + String.valueOf (i) + " " + get(i).toString());
-          // System.out.println ("    " + String.valueOf (j) + " " + get(j).toString());
-          swapped = true;
-        } // end if these two need to be swapped
-        counter++;
-      } // end of one pass through the list
-    } // end of sorting
-    
-    // Now build array of first characters
-    // System.out.println ("StringConverter building first character arrays");
-    StringBuffer firstCharsBuff = new StringBuffer();
-    firstCharFirstString = new ArrayList();
-    firstCharLastString = new ArrayList();
-    char lastFirstChar = ' ';
-    char nextFirstChar = ' ';
-    int firstCharIndex = -1;
-    for (int i = 0; i < list.size(); i++) {
-      StringFromTo ft = get(i);
-      nextFirstChar = ft.getFromFirstChar();
-      if ((i < 1)
-          || (nextFirstChar != lastFirstChar)) {
-        firstCharsBuff.append (nextFirstChar);
-        firstCharIndex++;
-        Integer stringIndex = new Integer (i);
-        firstCharFirstString.add (stringIndex);
-        firstCharLastString.add (stringIndex);
-        lastFirstChar = nextFirstChar;
-      } else {
-        Integer stringIndex = new Integer (i);
-        firstCharLastString.set (firstCharIndex, stringIndex);
+  public void convert (CharSequence before, Appendable after) 
+      throws IOException {
+    getTrie(forward).convert (before, after);
+  }
+  
+  /**
+    Convert a stream of characters, appending the results to the given 
+    output. Characters are read a chunk at a time, so the entire input need
+    never be held in memory. From strings that straddle chunk boundaries 
+    are still found and replaced. 
+   
+    @param in    The source of characters to be converted.
+    @param after Where the converted characters are to be written.
+   */
+  public void convert (Reader in, Appendable after) 
+      throws IOException {
+    convert (in, after, StringFromToTrie.DEFAULT_CHUNK_SIZE);
+  }
+  
+  /**
+    Convert a stream of characters, appending the results to the given 
+    output. 
+   
+    @param in        The source of characters to be converted.
+    @param after     Where the converted characters are to be written.
+    @param chunkSize The number of characters to read at a time. 
+   */
+  public void convert (Reader in, Appendable after, int chunkSize) 
+      throws IOException {
+    getTrie(forward).convert (in, after, chunkSize);
+  }
+  
+  /**
+    Return a trie compiled from the prepared list for the given direction, 
+    building it if necessary. Streaming conversions always use a trie, 
+    whether or not this converter has been set to compiled mode. 
+   */
+  private StringFromToTrie getTrie (boolean forward) {
+    StringFromToIndex index = checkPreparation (forward);
+    if (forward) {
+      if (forwardTrie == null) {
+        forwardTrie = new StringFromToTrie (index.getList(), true);
+      }
+      return forwardTrie;
+    } else {
+      if (reverseTrie == null) {
+        reverseTrie = new StringFromToTrie (index.getList(), false);
       }
+      return reverseTrie;
     }
-    
-    firstChars = firstCharsBuff.toString();
-
-    listPrepared = true;
-    // System.out.println ("StringConverter Preparation done");
-    
+  }
+  
+  /**
+    Return the index for the given direction, preparing it first if it has 
+    not been used since pairs were last added in bulk. Pairs added one at a
+    time after the initial preparation are slotted into place as they are 
+    added, although a compiled trie must then be rebuilt.
+   
+    @param forward The direction of conversion. 
+   */
+  private StringFromToIndex checkPreparation (boolean forward) {
+    StringFromToIndex index = getIndex (forward);
+    if (! index.isPrepared()) {
+      index.prepare();
+    }
+    return index;
+  }
+  
+  /**
+    Prepare the list for use in the current direction. This is done 
+    automatically before the first conversion in each direction. Pairs 
+    added afterwards are inserted in sorted order, without needing to 
+    prepare the entire list again. 
+   */
+  public void prepare () {
+    prepare (forward);
   } // end of method
   
-  public Collection getList() {
+  /**
+    Prepare the list for use in the given direction, compiling it as well
+    if this converter is in compiled mode. 
+   
+    @param forward The direction of conversion to be prepared.
+   */
+  private void prepare (boolean forward) {
+    if (locked) {
+      return;
+    }
+    getIndex(forward).prepare();
+    if (forward) {
+      forwardTrie = null;
+    } else {
+      reverseTrie = null;
+    }
+    if (compiled) {
+      getTrie (forward);
+    }
+  }
+  
+  private StringFromToIndex getIndex (boolean forward) {
+    if (forward) {
+      return forwardIndex;
+    } else {
+      return reverseIndex;
+    }
+  }
+  
+  /**
+    Return the pairs in this converter, in the order in which they were most 
+    recently prepared for the current direction. 
+   */
+  public Collection<StringFromTo> getList() {
+    List<StringFromTo> list = getIndex(forward).getList();
+    if (locked) {
+      return Collections.unmodifiableList (list);
+    }
     return list;
   }
   
   public StringFromTo get (int i) {
-    return (StringFromTo)list.get(i);
+    return getIndex(forward).get(i);
   }
   
   public String toString () {
     StringBuffer str = new StringBuffer();
-    for (int i = 0; i < list.size(); i++) {
+    for (int i = 0; i < forwardIndex.size(); i++) {
       if (str.length() > 0) {
         str.append("; ");
       }
@@ -475,9 +657,27 @@ public class StringConverter {
     sc1 = new StringConverter();
     sc1.add ("&", "&amp;");
     testDisplay (sc1, "This & that, then & now &");
+    sc1 = getMinimumHTML();
+    sc1.setCompiled (true);
+    testDisplay (sc1, "Line with \"quotes\" and <tags>");
+    testStreaming (getXML(), "Fish &amp; chips &hellip; & more &hellip;", 4);
     System.out.println (" ");
   }
   
+  private static void testStreaming 
+      (StringConverter sc, String before, int chunkSize) {
+    StringWriter after = new StringWriter();
+    try {
+      sc.convert (new StringReader (before), after, chunkSize);
+    } catch (IOException e) {
+      System.out.println ("I/O Exception while streaming");
+    }
+    System.out.println ("Streaming " + before + " to " + after.toString());
+    if (! after.toString().equals (sc.convert (before))) {
+      System.out.println ("!!! Streaming conversion differs from string conversion. !!!");
+    }
+  }
+  
   private static void testDisplay (StringConverter sc, String before) {
     sc.setForward (true);
     System.out.println ("Converter: " + sc.toString());
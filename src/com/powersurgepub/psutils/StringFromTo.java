@@ -62,6 +62,10 @@ public class StringFromTo
     this.preferred = preferred;
   }
   
+  public boolean isPreferred () {
+    return preferred;
+  }
+  
   /**
     Are we converting from to to fields, or going backwards (to back to from)?
    
@@ -77,7 +81,7 @@ public class StringFromTo
     Compare this from/to pair to another. Items are sorted based on the from 
     field (or the to field if going backwards). From fields are sorted by first
     characters, from field length (longer fields sort lower), then by the
-    entie from field, and finally by preference.  
+    entie from field, and finally by preference (preferred pairs sort lower). 
    
     @return -1 if this from field sorts lower than the other one;
             +1 if this from field sorts higher than the other one, otherwise
@@ -86,58 +90,93 @@ public class StringFromTo
     @param object Another StringFromTo instance to compare to this one.
    */
   public int compareTo (Object object2) {
-    StringFromTo s2 = (StringFromTo)object2;
-    if (getFromFirstChar() < s2.getFromFirstChar()) {
+    return compareTo ((StringFromTo)object2, forward);
+  }
+  
+  /**
+    Compare this from/to pair to another, as if both were set to convert
+    in the given direction, regardless of their current settings. 
+   
+    @return -1, 0 or +1, as for compareTo (Object). 
+   
+    @param s2      Another StringFromTo instance to compare to this one.
+    @param forward True to compare from fields, false to compare to fields.
+   */
+  public int compareTo (StringFromTo s2, boolean forward) {
+    String from1 = getFrom (forward);
+    String from2 = s2.getFrom (forward);
+    if (getFromFirstChar(forward) < s2.getFromFirstChar(forward)) {
       return -1;
     }
     else
-    if (getFromFirstChar() > s2.getFromFirstChar()) {
+    if (getFromFirstChar(forward) > s2.getFromFirstChar(forward)) {
       return 1;
     }
-    if (getFromLength() > s2.getFromLength()) {
+    if (from1.length() > from2.length()) {
       return -1;
     }
     else 
-    if (getFromLength() < s2.getFromLength()) {
+    if (from1.length() < from2.length()) {
       return 1;
     }
     else {
-      int stringResult = getFrom().compareTo (s2.getFrom());
+      int stringResult = from1.compareTo (from2);
       if (stringResult != 0) {
         return stringResult;
+      }
+      else
+      if (preferred == s2.isPreferred()) {
+        return 0;
+      }
+      else
+      if (preferred) {
+        return -1;
       } else {
-        if (preferred) {
-          return -1;
-        } else {
-          return 0;
-        }
+        return 1;
       } // end if from strings are identical
     } // end if first characters are the same and from lengths are the same
   } // end compareTo method
   
   public char getFromFirstChar () {
-    if (getFromLength() < 1) {
+    return getFromFirstChar (forward);
+  }
+  
+  public char getFromFirstChar (boolean forward) {
+    String from = getFrom (forward);
+    if (from.length() < 1) {
       return ' ';
     } else {
-      return getFrom().charAt(0);
+      return from.charAt(0);
     }
   }
   
   public boolean fromEquals (String s, int i) {
-    int maxLength = s.length() - i;
-    int fromLength = getFromLength();
-    if (maxLength < fromLength) {
-      return false;
-    } else {
-      return (getFrom().equals(s.substring (i, i + fromLength)));
-    }
+    return fromEquals (s, i, forward);
+  }
+  
+  public boolean fromEquals (String s, int i, boolean forward) {
+    String from = getFrom (forward);
+    return s.regionMatches (i, from, 0, from.length());
   }
   
   public int getFromLength () {
     return getFrom().length();
   }
   
+  public int getFromLength (boolean forward) {
+    return getFrom(forward).length();
+  }
+  
   public String getFrom () {
+    return getFrom (forward);
+  }
+  
+  /**
+    Returns the string to be replaced when converting in the given direction.
+   
+    @param forward True for the from field, false for the to field.
+   */
+  public String getFrom (boolean forward) {
     if (forward) {
       return from;
     } else {
@@ -146,6 +185,15 @@ public class StringFromTo
   }
   
   public String getTo () {
+    return getTo (forward);
+  }
+  
+  /**
+    Returns the replacement string when converting in the given direction.
+   
+    @param forward True for the to field, false for the from field.
+   */
+  public String getTo (boolean forward) {
     if (forward) {
       return to;
     } else {
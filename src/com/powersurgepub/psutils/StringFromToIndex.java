@@ -0,0 +1,284 @@
+/*
+ * Copyright 2026 - 2026 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psutils;
+
+  import java.util.*;
+
+/**
+   A list of from/to pairs, kept sorted once prepared, along with an index
+   of the range of pairs sharing each distinct first character. Used by
+   both StringConverter and StringFromToList. <p>
+
+   Preparation sorts the list once. Pairs added after preparation are
+   inserted in their sorted positions, and the index is adjusted in place,
+   so that the list need not be prepared again. <p>
+
+   An index may either follow the current direction of each pair, or be
+   fixed to one direction when created, in which case the pairs' own
+   direction settings are ignored. <p>
+ */
+public class StringFromToIndex {
+
+  private ArrayList<StringFromTo> list = new ArrayList<StringFromTo>();
+
+  private boolean   prepared = false;
+
+  /** True if this index ignores the direction set on each pair. */
+  private boolean   fixedDirection = false;
+
+  private boolean   forward = true;
+
+  private Comparator<StringFromTo> comparator = new PairComparator();
+
+  /** Distinct first characters of the from strings, in ascending order. */
+  private char[]    firstChars = new char [0];
+
+  /** Index of the first pair starting with each first character. */
+  private int[]     firstString = new int [0];
+
+  /** Index of the last pair starting with each first character. */
+  private int[]     lastString = new int [0];
+
+  private int       firstCharCount = 0;
+
+  /**
+    Creates a new empty index, which follows the direction currently set
+    on each pair.
+   */
+  public StringFromToIndex() {
+
+  }
+
+  /**
+    Creates a new empty index, fixed to one direction of conversion.
+
+    @param forward True to index the from strings, false to index the
+                   to strings.
+   */
+  public StringFromToIndex(boolean forward) {
+    this.fixedDirection = true;
+    this.forward = forward;
+  }
+
+  /**
+    Adds another from/to pair. If the list has already been prepared, then
+    the pair is inserted in its sorted position.
+
+    @param fromTo Another from/to pair to be added to the list.
+   */
+  public void add (StringFromTo fromTo) {
+    if (! prepared) {
+      list.add (fromTo);
+    } else {
+      int i = insertionPoint (fromTo);
+      list.add (i, fromTo);
+      adjustFirstChars (getFromFirstChar (fromTo), i);
+    }
+  }
+
+  /**
+    Adds a collection of from/to pairs. If the list has already been
+    prepared, then it is sorted again once all of the pairs have been added.
+
+    @param pairs A collection of StringFromTo objects.
+   */
+  public void addAll (Collection<? extends StringFromTo> pairs) {
+    list.addAll (pairs);
+    if (prepared) {
+      prepare();
+    }
+  }
+
+  /**
+    Indicate that the list will need to be prepared again, because the
+    from strings of the pairs have changed (as when their direction has
+    been reversed).
+   */
+  public void invalidate () {
+    prepared = false;
+  }
+
+  public boolean isPrepared () {
+    return prepared;
+  }
+
+  /**
+    Prepare the list for use, by sorting it and then building the index of
+    first characters.
+   */
+  public void prepare () {
+
+    // Sort the list: longer from strings go first. The sort is stable, so
+    // pairs with identical from strings stay in the order they were added.
+    Collections.sort (list, comparator);
+
+    // Now build arrays of first characters
+    firstChars = new char [list.size()];
+    firstString = new int [list.size()];
+    lastString = new int [list.size()];
+    firstCharCount = 0;
+    char lastFirstChar = ' ';
+    for (int i = 0; i < list.size(); i++) {
+      char nextFirstChar = getFromFirstChar (get(i));
+      if ((i < 1)
+          || (nextFirstChar != lastFirstChar)) {
+        firstChars [firstCharCount] = nextFirstChar;
+        firstString [firstCharCount] = i;
+        lastString [firstCharCount] = i;
+        firstCharCount++;
+        lastFirstChar = nextFirstChar;
+      } else {
+        lastString [firstCharCount - 1] = i;
+      }
+    }
+
+    prepared = true;
+  } // end of method prepare
+
+  /**
+    Find the position at which a new pair should be inserted into the
+    prepared list: after any pairs that sort lower or equal to it.
+
+    @return The index at which the pair belongs.
+    @param fromTo The pair to be inserted.
+   */
+  private int insertionPoint (StringFromTo fromTo) {
+    int low = 0;
+    int high = list.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (comparator.compare (get(mid), fromTo) <= 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+    Adjust the first character index after a pair has been inserted.
+
+    @param c The first character of the inserted pair's from string.
+    @param i The index at which the pair was inserted.
+   */
+  private void adjustFirstChars (char c, int i) {
+    int k = indexOfFirstChar (c);
+    if (k < 0) {
+
+      // New first character: open up a slot for it
+      k = -(k + 1);
+      if (firstCharCount >= firstChars.length) {
+        int newLength = (firstChars.length * 2) + 1;
+        firstChars = Arrays.copyOf (firstChars, newLength);
+        firstString = Arrays.copyOf (firstString, newLength);
+        lastString = Arrays.copyOf (lastString, newLength);
+      }
+      int move = firstCharCount - k;
+      System.arraycopy (firstChars, k, firstChars, k + 1, move);
+      System.arraycopy (firstString, k, firstString, k + 1, move);
+      System.arraycopy (lastString, k, lastString, k + 1, move);
+      firstChars [k] = c;
+      firstString [k] = i;
+      lastString [k] = i;
+      firstCharCount++;
+    } else {
+      lastString [k]++;
+    }
+
+    // Every later first character has moved down one position
+    for (int j = k + 1; j < firstCharCount; j++) {
+      firstString [j]++;
+      lastString [j]++;
+    }
+  }
+
+  /**
+    Look up a character in the index of first characters.
+
+    @return The position of the character within the index if found,
+            otherwise (-(insertion point) - 1).
+    @param c The character to look for.
+   */
+  public int indexOfFirstChar (char c) {
+    return Arrays.binarySearch (firstChars, 0, firstCharCount, c);
+  }
+
+  /**
+    Return the index of the first pair whose from string starts with the
+    first character at the given position in the index.
+   */
+  public int getFirstString (int firstCharIndex) {
+    return firstString [firstCharIndex];
+  }
+
+  /**
+    Return the index of the last pair whose from string starts with the
+    first character at the given position in the index.
+   */
+  public int getLastString (int firstCharIndex) {
+    return lastString [firstCharIndex];
+  }
+
+  /**
+    Return the first character of a pair's from string, in the direction
+    used by this index.
+   */
+  private char getFromFirstChar (StringFromTo fromTo) {
+    if (fixedDirection) {
+      return fromTo.getFromFirstChar (forward);
+    } else {
+      return fromTo.getFromFirstChar();
+    }
+  }
+
+  public boolean isFixedDirection () {
+    return fixedDirection;
+  }
+
+  public boolean isForward () {
+    return forward;
+  }
+
+  public List<StringFromTo> getList () {
+    return list;
+  }
+
+  public int size () {
+    return list.size();
+  }
+
+  public StringFromTo get (int i) {
+    return list.get(i);
+  }
+
+  /**
+    Orders pairs in the direction used by this index.
+   */
+  private class PairComparator
+      implements Comparator<StringFromTo> {
+
+    public int compare (StringFromTo ft1, StringFromTo ft2) {
+      if (fixedDirection) {
+        return ft1.compareTo (ft2, forward);
+      } else {
+        return ft1.compareTo (ft2);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright 2026 - 2026 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psutils;
+
+  import java.io.*;
+  import java.nio.*;
+  import java.util.*;
+
+/**
+   A character trie compiled from a prepared list of from/to pairs, used by
+   StringConverter to find the longest from string starting at any given
+   position without testing each candidate pair in turn. <p>
+
+   Once constructed, a trie is never modified, so it may be shared freely
+   between threads. <p>
+ */
+public class StringFromToTrie {
+
+  /** Default number of characters to read at a time when streaming. */
+  public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+  /** Returned by a match that runs into the end of the available input. */
+  private static final int NEED_MORE = -2;
+
+  /** Root transitions for Latin-1 characters; zero means no transition. */
+  private final int[]     rootLatin = new int[256];
+
+  /** Index of each node's first edge within the edge arrays. */
+  private final int[]     edgeStart;
+
+  /** Number of edges leaving each node. */
+  private final int[]     edgeCount;
+
+  /** Edge labels, sorted in ascending order within each node. */
+  private final char[]    edgeChar;
+
+  /** Node reached by following each edge. */
+  private final int[]     edgeTarget;
+
+  /** Index of the pair ending at each node, or -1 if none does. */
+  private final int[]     nodeOutput;
+
+  private final String[]  to;
+  private final int[]     fromLength;
+
+  private final int       maxFromLength;
+
+  /**
+    Compiles a new trie from a list of StringFromTo pairs, for conversion
+    in the given direction, regardless of the direction currently set on
+    each pair. The list is expected to be in the order established by
+    StringConverter.prepare, so that when more than one pair shares the
+    same from string, the first one wins.
+
+    @param list    A prepared list of StringFromTo objects.
+    @param forward True to replace from strings with to strings, false
+                   to replace to strings with from strings.
+   */
+  public StringFromToTrie (List<StringFromTo> list, boolean forward) {
+
+    // Build a temporary tree of nodes, one level per from character
+    ArrayList<BuildNode> nodes = new ArrayList<BuildNode>();
+    nodes.add (new BuildNode());
+    to = new String [list.size()];
+    fromLength = new int [list.size()];
+    int longest = 0;
+    for (int i = 0; i < list.size(); i++) {
+      StringFromTo ft = list.get(i);
+      String from = ft.getFrom (forward);
+      to [i] = ft.getTo (forward);
+      fromLength [i] = from.length();
+      if (from.length() > 0) {
+        BuildNode node = nodes.get(0);
+        for (int j = 0; j < from.length(); j++) {
+          Character c = Character.valueOf (from.charAt(j));
+          BuildNode next = node.children.get(c);
+          if (next == null) {
+            next = new BuildNode();
+            next.index = nodes.size();
+            nodes.add (next);
+            node.children.put (c, next);
+          }
+          node = next;
+        }
+        if (node.output < 0) {
+          node.output = i;
+        }
+        if (from.length() > longest) {
+          longest = from.length();
+        }
+      } // end if from string is not empty
+    } // end for each from/to pair
+    maxFromLength = longest;
+
+    // Now flatten the tree into parallel arrays
+    int nodeCount = nodes.size();
+    edgeStart = new int [nodeCount];
+    edgeCount = new int [nodeCount];
+    nodeOutput = new int [nodeCount];
+    edgeChar = new char [nodeCount - 1];
+    edgeTarget = new int [nodeCount - 1];
+    int nextEdge = 0;
+    for (int n = 0; n < nodeCount; n++) {
+      BuildNode node = nodes.get(n);
+      nodeOutput [n] = node.output;
+      edgeStart [n] = nextEdge;
+      edgeCount [n] = node.children.size();
+      Iterator<Map.Entry<Character, BuildNode>> iterator 
+          = node.children.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<Character, BuildNode> entry = iterator.next();
+        char c = entry.getKey().charValue();
+        int target = entry.getValue().index;
+        edgeChar [nextEdge] = c;
+        edgeTarget [nextEdge] = target;
+        if (n == 0 && c < rootLatin.length) {
+          rootLatin [c] = target;
+        }
+        nextEdge++;
+      }
+    } // end for each node
+  } // end constructor
+
+  /**
+    Follow the edge labelled with the given character out of a node.
+
+    @return The node reached, or -1 if there is no such edge.
+    @param node The node to start from.
+    @param c    The character to follow.
+   */
+  private int next (int node, char c) {
+    if (node == 0 && c < rootLatin.length) {
+      int target = rootLatin [c];
+      return (target == 0 ? -1 : target);
+    }
+    int low = edgeStart [node];
+    int high = low + edgeCount [node] - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      char midChar = edgeChar [mid];
+      if (midChar < c) {
+        low = mid + 1;
+      }
+      else
+      if (midChar > c) {
+        high = mid - 1;
+      } else {
+        return edgeTarget [mid];
+      }
+    }
+    return -1;
+  }
+
+  /**
+    Find the longest from string that begins at the given position.
+
+    @return The index of the matching pair, or -1 if no from string
+            begins at this position.
+    @param s     The characters being converted.
+    @param start The position at which a match must begin.
+    @param end   The end of the characters available (exclusive).
+   */
+  public int match (CharSequence s, int start, int end) {
+    return match (s, start, end, true);
+  }
+
+  /**
+    Find the longest from string that begins at the given position, taking
+    into account that more input may follow the characters now available.
+
+    @return The index of the matching pair; -1 if no from string
+            begins at this position; or NEED_MORE if a longer from string
+            might match once more input is available.
+    @param s     The characters being converted.
+    @param start The position at which a match must begin.
+    @param end   The end of the characters available (exclusive).
+    @param endOfInput True if no more input will follow.
+   */
+  private int match (CharSequence s, int start, int end, boolean endOfInput) {
+    int best = -1;
+    int node = 0;
+    int i = start;
+    while (i < end) {
+      node = next (node, s.charAt(i));
+      if (node < 0) {
+        return best;
+      }
+      i++;
+      if (nodeOutput [node] >= 0) {
+        best = nodeOutput [node];
+      }
+    }
+    if ((! endOfInput) && edgeCount [node] > 0) {
+      return NEED_MORE;
+    }
+    return best;
+  }
+
+  /**
+    Convert a string, replacing the longest from string found at each
+    position with its corresponding to string, in a single pass. The
+    string is first scanned for a match; if none is found, then the
+    original string is returned as is, and nothing is allocated.
+
+    @return         String after conversion.
+    @param  before  String to be converted.
+   */
+  public String convert (String before) {
+    return convert (before, 0);
+  }
+
+  /**
+    Convert a string, as above, when the caller already knows that no from
+    string starts before a given position.
+
+    @return         String after conversion.
+    @param  before  String to be converted.
+    @param  start   The first position at which a from string may start.
+   */
+  public String convert (String before, int start) {
+    int length = before.length();
+    int i = start;
+    int m = -1;
+    while (i < length && m < 0) {
+      m = match (before, i, length);
+      if (m < 0) {
+        i++;
+      }
+    }
+    if (m < 0) {
+      return before;
+    }
+
+    // Found a match: from here on, build a new string
+    StringBuilder after = new StringBuilder (expectedLength (length));
+    int copied = 0;
+    while (i < length) {
+      if (m < 0) {
+        i++;
+      } else {
+        after.append (before, copied, i);
+        after.append (to [m]);
+        i = i + fromLength [m];
+        copied = i;
+      }
+      if (i < length) {
+        m = match (before, i, length);
+      }
+    }
+    after.append (before, copied, length);
+    return after.toString();
+  }
+
+  /**
+    Estimate the length of a converted string, so that a builder can be
+    sized once, allowing some room for replacements to grow the string.
+
+    @return A suitable initial capacity.
+    @param length The length of the string before conversion.
+   */
+  public static int expectedLength (int length) {
+    return length + Math.max (16, length >> 3);
+  }
+
+  /**
+    Convert a sequence of characters, appending the results to the given
+    output. 
+
+    @param before The characters to be converted.
+    @param after  Where the converted characters are to be written.
+   */
+  public void convert (CharSequence before, Appendable after)
+      throws IOException {
+    convert (before, 0, before.length(), true, after);
+  }
+
+  /**
+    Convert a stream of characters, reading them a chunk at a time, and
+    appending the results to the given output. A from string that straddles
+    the end of one chunk is completed with characters from the next, so
+    the result is the same as if the entire input had been converted at
+    once, but no more than one chunk is ever held in memory. 
+
+    @param in        The source of characters to be converted.
+    @param after     Where the converted characters are to be written.
+    @param chunkSize The number of characters to read at a time.
+   */
+  public void convert (Reader in, Appendable after, int chunkSize)
+      throws IOException {
+    char[] buf = new char [Math.max (chunkSize, (maxFromLength * 2) + 1)];
+    CharBuffer chunk = CharBuffer.wrap (buf);
+    int end = 0;
+    boolean endOfInput = false;
+    while (! endOfInput) {
+      int count = in.read (buf, end, buf.length - end);
+      if (count < 0) {
+        endOfInput = true;
+      } else {
+        end = end + count;
+      }
+      int converted = convert (chunk, 0, end, endOfInput, after);
+
+      // Carry any unfinished match over to the front of the buffer
+      end = end - converted;
+      System.arraycopy (buf, converted, buf, 0, end);
+    }
+  }
+
+  /**
+    Convert a range of characters, appending the results to the given output.
+    Unchanged characters are copied in runs, rather than one at a time.
+
+    @return The position of the first character not yet converted. This
+            will be the end of the range unless more input is expected
+            and a from string might still be completed by it.
+    @param before     The characters to be converted.
+    @param start      The first position to be converted.
+    @param end        The end of the range to be converted (exclusive).
+    @param endOfInput True if no more input will follow this range.
+    @param after      Where the converted characters are to be written.
+   */
+  public int convert (CharSequence before, int start, int end,
+      boolean endOfInput, Appendable after)
+        throws IOException {
+    int i = start;
+    int copied = start;
+    while (i < end) {
+      int m = match (before, i, end, endOfInput);
+      if (m == NEED_MORE) {
+        break;
+      }
+      else
+      if (m < 0) {
+        i++;
+      } else {
+        appendRun (before, copied, i, after);
+        after.append (to [m]);
+        i = i + fromLength [m];
+        copied = i;
+      }
+    }
+    appendRun (before, copied, i, after);
+    return i;
+  }
+
+  /**
+    Append a run of unchanged characters to the output, writing directly
+    from the backing array when streaming to a Writer.
+   */
+  static void appendRun
+      (CharSequence before, int start, int end, Appendable after)
+        throws IOException {
+    if (start >= end) {
+      // Nothing to append
+    }
+    else
+    if (after instanceof Writer
+        && before instanceof CharBuffer
+        && ((CharBuffer)before).hasArray()) {
+      CharBuffer chunk = (CharBuffer)before;
+      ((Writer)after).write
+          (chunk.array(), chunk.arrayOffset() + chunk.position() + start,
+          end - start);
+    } else {
+      after.append (before, start, end);
+    }
+  }
+
+  public String getTo (int i) {
+    return to [i];
+  }
+
+  public int getFromLength (int i) {
+    return fromLength [i];
+  }
+
+  public int getMaxFromLength () {
+    return maxFromLength;
+  }
+
+  /**
+    A node used only while the trie is being built.
+   */
+  private static class BuildNode {
+    int     index = 0;
+    int     output = -1;
+    TreeMap<Character, BuildNode> children = new TreeMap<Character, BuildNode>();
+  }
+
+}
@@ -24,7 +24,7 @@ package com.powersurgepub.psutils;
 
   import java.lang.String;
 
-  import java.lang.StringBuffer;
+  import java.util.concurrent.ConcurrentHashMap;
 
   import com.powersurgepub.psutils.StringScanner;
 
@@ -42,7 +42,19 @@ package com.powersurgepub.psutils;
 
    The resulting output pattern is made up of representative characters
 
-   defined in StringScanner. 
+   defined in StringScanner. <p>
+
+  
+
+   The pattern and the character counts are only determined when first
+
+   requested. Patterns are kept in a run-length encoded form, and each
+
+   distinct pattern is interned, so that strings of the same shape share
+
+   one copy of the pattern and its counts, and two patterns can usually be
+
+   compared by reference alone. 
 
  */
 
@@ -52,45 +64,45 @@ public class StringPattern {
 
 
 
-  /** Scanner used to examine the input string. */
+  /** Maximum number of distinct patterns to be interned. */
 
-  private StringScanner scanner;
+  public static final int MAX_INTERNED_PATTERNS = 10000;
 
   
 
-  /** The resulting pattern being built. */
+  /** Interned shapes, chained within buckets chosen by their hash codes. */
 
-  private String  pattern;
+  private static final Shape[] shapes = new Shape [16384];
 
   
 
-  /** The length of the input string. */
+  /** Number of shapes interned so far. */
 
-  private int    length = 0;
+  private static volatile int shapeCount = 0;
 
   
 
-  /** The number of numeric characters (0 - 9) in the string. */
+  /** The string whose pattern is to be determined. */
 
-  private int    digitCount = 0;
+  private String  inString;
 
   
 
-  /** The number of alphabetic characters (a - z) in the string. */
+  /** The interner to be used, or null to use the shared, static one. */
 
-  private int    letterCount = 0;
+  private Interner interner = null;
 
   
 
-  /** The number of spaces in the string. */
+  /** The shape of the string, or null if not yet determined. */
 
-  private int    spaceCount = 0;
+  private Shape   shape = null;
 
   
 
-  /** The number of punctuation characters in the string. */
+  /** Has the punctuation in the string been examined yet? */
 
-  private int    punctCount = 0;
+  private boolean punctExamined = false;
 
   
 
@@ -128,6 +140,42 @@ public class StringPattern {
 
     testPattern ("10557 E. Mercer Lane");
 
+    System.out.println ("Testing class ColumnProfiler");
+
+    testProfile (new String[] {"05/05/51", "12/31/2000", "", "1/1/01"});
+
+    testProfile (new String[] {"42", "-7", "3.5", "1000"});
+
+    testProfile (new String[] {"AZ", "CA", "NY-1", "220-48-5752"});
+
+    testProfile (new String[] {"Herb Bowie", "10557 E. Mercer Lane"});
+
+  }
+
+  
+
+  /**
+
+     Profile a column of values and print the result.
+
+    
+
+     @param values The values in the column.
+
+   */
+
+  public static void testProfile (String[] values) {
+
+    ColumnProfiler profiler = new ColumnProfiler();
+
+    profiler.setSliceSize (2);
+
+    ColumnProfile profile = profiler.profile (values);
+
+    profile.setName ("Column");
+
+    System.out.println (profile.toString());
+
   }
 
   
@@ -158,7 +206,7 @@ public class StringPattern {
 
   /**
 
-     Builds the pattern string and counts the numbers 
+     Prepares to build the pattern string and count the numbers 
 
      of various character types contained within the string.
 
@@ -170,57 +218,207 @@ public class StringPattern {
 
   public StringPattern (String inString) {
 
-    scanner = new StringScanner (inString);
+    this.inString = inString;
 
-    StringBuffer work = new StringBuffer();
+  }
 
-    length = inString.length();
+  
 
-    while (scanner.moreChars()) {
+  /**
 
-      if (scanner.getNextCharType() == StringScanner.DIGIT_CHAR) {
+     Prepares to build the pattern string, interning its shape in the
 
-        digitCount++;
+     given interner rather than in the shared, static one.
 
-      } else
+    
 
-      if (scanner.getNextCharType() == StringScanner.LETTER_CHAR) {
+     @param inString   this is the string whose pattern is to be determined
 
-        letterCount++;
+     @param interner   the interner in which to look for the string's shape
 
-      } else
+   */  
 
-      if (scanner.getNextCharType() == StringScanner.SPACE_CHAR) {
+  public StringPattern (String inString, Interner interner) {
 
-        spaceCount++;
+    this.inString = inString;
 
-      } else {
+    this.interner = interner;
 
-        punctCount++;
+  }
+
+  
+
+  /**
+
+     Returns the shape of the string, determining it the first time
 
-        if (punctCount == 1) {
+     it is needed. When the shared interner is used, nothing is allocated 
 
-          punctChar = scanner.getNextChar();
+     if the shape has been seen before.
 
-          punctAllSame = true;
+   */
+
+  private Shape getShape () {
+
+    if (shape == null) {
 
-        } else
+      int hash = 0;
 
-        if (scanner.getNextChar() != punctChar) {
+      for (int i = 0; i < inString.length(); i++) {
+
+        hash = (31 * hash) + StringScanner.getCharType (inString.charAt (i));
+
+      }
 
-          punctAllSame = false;
+      if (interner != null) {
+
+        shape = interner.intern (inString, hash);
+
+      }
+
+      Shape candidate = null;
+
+      if (shape == null) {
+
+        candidate = shapes [hash & (shapes.length - 1)];
+
+      }
+
+      while (shape == null && candidate != null) {
+
+        if (candidate.hash == hash && candidate.matches (inString)) {
+
+          shape = candidate;
+
+        } else {
+
+          candidate = candidate.next;
 
         }
 
       }
 
-      work.append (scanner.getNextCharType());
+      if (shape != null) {
+
+        // Found it
+
+      }
+
+      else
+
+      if (shapeCount >= MAX_INTERNED_PATTERNS) {
+
+        shape = new Shape (inString, hash, null);
+
+      } else {
+
+        shape = intern (inString, hash);
+
+      }
+
+    }
+
+    return shape;
+
+  }
+
+  
+
+  /**
+
+     Adds a new shape to those already interned, unless another thread 
+
+     has just done so, or too many have been interned already.
+
+    
+
+     @return  The interned shape, or a new uninterned one.
+
+    
+
+     @param   s     A string having the shape to be interned.
+
+     @param   hash  The hash code of the string's pattern.
+
+   */
+
+  private static synchronized Shape intern (String s, int hash) {
+
+    int bucket = hash & (shapes.length - 1);
+
+    Shape candidate = shapes [bucket];
+
+    while (candidate != null) {
+
+      if (candidate.hash == hash && candidate.matches (s)) {
+
+        return candidate;
+
+      }
+
+      candidate = candidate.next;
 
-      scanner.incrementIndex();
+    }
+
+    if (shapeCount >= MAX_INTERNED_PATTERNS) {
+
+      return new Shape (s, hash, null);
 
     }
 
-    pattern = work.toString();
+    Shape shape = new Shape (s, hash, shapes [bucket]);
+
+    shapes [bucket] = shape;
+
+    shapeCount++;
+
+    return shape;
+
+  }
+
+  
+
+  /**
+
+     Looks at the punctuation in the string, the first time it is needed.
+
+   */
+
+  private void examinePunct () {
+
+    if (! punctExamined) {
+
+      int punctCount = 0;
+
+      for (int i = 0; i < inString.length(); i++) {
+
+        char c = inString.charAt (i);
+
+        if (StringScanner.getCharType (c) == StringScanner.PUNCT_CHAR) {
+
+          punctCount++;
+
+          if (punctCount == 1) {
+
+            punctChar = c;
+
+            punctAllSame = true;
+
+          } else
+
+          if (c != punctChar) {
+
+            punctAllSame = false;
+
+          }
+
+        }
+
+      }
+
+      punctExamined = true;
+
+    }
 
   }
 
@@ -256,7 +454,7 @@ public class StringPattern {
 
    */
 
-  public     String     toString ()     { return pattern; }
+  public     String     toString ()     { return getShape().getPattern(); }
 
   
 
@@ -272,7 +470,7 @@ public class StringPattern {
 
    */
 
-  public     String    getPattern ()     { return pattern; }
+  public     String    getPattern ()     { return getShape().getPattern(); }
 
   
 
@@ -288,7 +486,7 @@ public class StringPattern {
 
    */
 
-  public     int      getLength ()     { return length; }
+  public     int      getLength ()     { return inString.length(); }
 
   
 
@@ -302,7 +500,7 @@ public class StringPattern {
 
    */
 
-  public    int      getDigitCount ()   { return digitCount; }
+  public    int      getDigitCount ()   { return getShape().digitCount; }
 
   
 
@@ -316,7 +514,7 @@ public class StringPattern {
 
    */
 
-  public    int      getLetterCount ()   { return letterCount; }
+  public    int      getLetterCount ()   { return getShape().letterCount; }
 
   
 
@@ -330,7 +528,7 @@ public class StringPattern {
 
    */
 
-  public    int      getSpaceCount ()  { return spaceCount; }
+  public    int      getSpaceCount ()  { return getShape().spaceCount; }
 
   
 
@@ -344,7 +542,7 @@ public class StringPattern {
 
    */
 
-  public    int      getPunctCount ()  { return punctCount; }
+  public    int      getPunctCount ()  { return getShape().punctCount; }
 
   
 
@@ -358,7 +556,13 @@ public class StringPattern {
 
    */
 
-  public    char    getPunctChar ()    { return punctChar; }
+  public    char    getPunctChar ()    { 
+
+    examinePunct();
+
+    return punctChar; 
+
+  }
 
   
 
@@ -376,7 +580,27 @@ public class StringPattern {
 
    */
 
-  public    boolean    isPunctAllSame ()  { return punctAllSame; }
+  public    boolean    isPunctAllSame ()  { 
+
+    examinePunct();
+
+    return punctAllSame; 
+
+  }
+
+  
+
+  /**
+
+     Returns the number of distinct patterns that have been interned.
+
+   */
+
+  public static int getInternedPatternCount () {
+
+    return shapeCount;
+
+  }
 
   
 
@@ -396,13 +620,13 @@ public class StringPattern {
 
   public    char       charAt (int index) {
 
-    if ((index < 0) || (index >= length)) {
+    if ((index < 0) || (index >= inString.length())) {
 
       return StringScanner.SPACE_CHAR;
 
     } else {
 
-      return pattern.charAt(index);
+      return StringScanner.getCharType (inString.charAt(index));
 
     }
 
@@ -426,7 +650,7 @@ public class StringPattern {
 
   public    boolean    equals (String anotherPattern) {
 
-    return (pattern.equals (anotherPattern));
+    return (getShape().getPattern().equals (anotherPattern));
 
   }
 
@@ -448,7 +672,385 @@ public class StringPattern {
 
   public    boolean    startsWith (String anotherPattern) {
 
-    return (pattern.startsWith (anotherPattern));
+    return (getShape().getPattern().startsWith (anotherPattern));
+
+  }
+
+  
+
+  /**
+
+     Checks to see if this pattern is identical to another one. Interned
+
+     patterns are compared by reference.
+
+    
+
+     @return  true if the other object is a StringPattern with the same
+
+              pattern as this one.
+
+     
+
+     @param   obj  The object to be compared to this one.
+
+   */
+
+  public    boolean    equals (Object obj) {
+
+    if (obj instanceof StringPattern) {
+
+      Shape otherShape = ((StringPattern)obj).getShape();
+
+      return (getShape() == otherShape 
+
+          || getShape().runs.equals (otherShape.runs));
+
+    } else {
+
+      return false;
+
+    }
+
+  }
+
+  
+
+  public    int        hashCode () {
+
+    return getShape().hash;
+
+  }
+
+  
+
+  /**
+
+     A table of shapes, for use in place of the shared, static one, so that
+
+     the shapes seen by one task are kept no longer than the task needs 
+
+     them, and without limit. It may be shared by several threads, which 
+
+     will not block one another.
+
+   */
+
+  public static class Interner {
+
+    
+
+    /** Shapes having each hash code, chained from the latest added. */
+
+    private ConcurrentHashMap<Integer, Shape> shapesByHash
+
+        = new ConcurrentHashMap<Integer, Shape>();
+
+    
+
+    public Interner () {
+
+    
+
+    }
+
+    
+
+    /**
+
+       Returns the interned shape of the given string, adding it if another 
+
+       thread has not already done so.
+
+      
+
+       @return  The interned shape.
+
+      
+
+       @param   s     A string having the shape to be interned.
+
+       @param   hash  The hash code of the string's pattern.
+
+     */
+
+    private Shape intern (String s, int hash) {
+
+      Integer key = Integer.valueOf (hash);
+
+      while (true) {
+
+        Shape first = shapesByHash.get (key);
+
+        Shape candidate = first;
+
+        while (candidate != null) {
+
+          if (candidate.matches (s)) {
+
+            return candidate;
+
+          }
+
+          candidate = candidate.next;
+
+        }
+
+        Shape shape = new Shape (s, hash, first);
+
+        if (first == null) {
+
+          if (shapesByHash.putIfAbsent (key, shape) == null) {
+
+            return shape;
+
+          }
+
+        }
+
+        else
+
+        if (shapesByHash.replace (key, first, shape)) {
+
+          return shape;
+
+        }
+
+      }
+
+    }
+
+    
+
+  }
+
+  
+
+  /**
+
+     One distinct pattern, shared by all strings of the same shape. The
+
+     pattern is kept in run-length encoded form, and only expanded into
+
+     a full pattern string if one is requested.
+
+   */
+
+  private static class Shape {
+
+    
+
+    /** The pattern in run-length encoded form: type, then length. */
+
+    final String  runs;
+
+    
+
+    /** The hash code of the full pattern string. */
+
+    final int     hash;
+
+    
+
+    /** The next shape in the same bucket. */
+
+    final Shape   next;
+
+    
+
+    final int     digitCount;
+
+    final int     letterCount;
+
+    final int     spaceCount;
+
+    final int     punctCount;
+
+    
+
+    /** The full pattern, or null if not yet requested. */
+
+    private String pattern = null;
+
+    
+
+    Shape (String s, int hash, Shape next) {
+
+      this.hash = hash;
+
+      this.next = next;
+
+      int[] counts = new int [4];
+
+      StringBuilder work = new StringBuilder();
+
+      char runType = ' ';
+
+      int runLength = 0;
+
+      for (int i = 0; i <= s.length(); i++) {
+
+        char charType = ' ';
+
+        if (i < s.length()) {
+
+          charType = StringScanner.getCharType (s.charAt (i));
+
+        }
+
+        if (i >= s.length() 
+
+            || charType != runType 
+
+            || runLength >= Character.MAX_VALUE) {
+
+          if (runLength > 0) {
+
+            work.append (runType);
+
+            work.append ((char)runLength);
+
+          }
+
+          runType = charType;
+
+          runLength = 0;
+
+        }
+
+        runLength++;
+
+        if (i < s.length()) {
+
+          counts [typeIndex (charType)]++;
+
+        }
+
+      }
+
+      runs = work.toString();
+
+      digitCount = counts [0];
+
+      letterCount = counts [1];
+
+      spaceCount = counts [2];
+
+      punctCount = counts [3];
+
+    }
+
+    
+
+    private static int typeIndex (char charType) {
+
+      if (charType == StringScanner.DIGIT_CHAR) {
+
+        return 0;
+
+      } else
+
+      if (charType == StringScanner.LETTER_CHAR) {
+
+        return 1;
+
+      } else
+
+      if (charType == StringScanner.SPACE_CHAR) {
+
+        return 2;
+
+      } else {
+
+        return 3;
+
+      }
+
+    }
+
+    
+
+    /**
+
+       Does the given string have this shape?
+
+     */
+
+    boolean matches (String s) {
+
+      int i = 0;
+
+      for (int r = 0; r < runs.length(); r = r + 2) {
+
+        char runType = runs.charAt (r);
+
+        int runEnd = i + runs.charAt (r + 1);
+
+        if (runEnd > s.length()) {
+
+          return false;
+
+        }
+
+        while (i < runEnd) {
+
+          if (StringScanner.getCharType (s.charAt (i)) != runType) {
+
+            return false;
+
+          }
+
+          i++;
+
+        }
+
+      }
+
+      return (i == s.length());
+
+    }
+
+    
+
+    /**
+
+       Returns the full pattern, with one character for each character 
+
+       in the string, expanding it the first time it is requested.
+
+     */
+
+    String getPattern () {
+
+      String expanded = pattern;
+
+      if (expanded == null) {
+
+        StringBuilder work = new StringBuilder();
+
+        for (int r = 0; r < runs.length(); r = r + 2) {
+
+          char runType = runs.charAt (r);
+
+          int runLength = runs.charAt (r + 1);
+
+          for (int j = 0; j < runLength; j++) {
+
+            work.append (runType);
+
+          }
+
+        }
+
+        expanded = work.toString();
+
+        pattern = expanded;
+
+      }
+
+      return expanded;
+
+    }
 
   }
 
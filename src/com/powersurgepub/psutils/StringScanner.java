@@ -16,6 +16,7 @@
 
 package com.powersurgepub.psutils;
 
+  import java.time.*;
   import java.util.*;
   
 /**
@@ -30,9 +31,24 @@ public class StringScanner {
   public   static final char     SPACE_CHAR = ' ';
   public   static final String   WHITE_SPACE = " ";
   public   static final String   DEFAULT_DELIMITERS = " ,;:\t\r\n";
+  
+  /** Character type of each Latin-1 character, computed once. */
+  private  static final char[]   LATIN_TYPES = new char [256];
+  
+  /** Numeric value of each Latin-1 digit. */
+  private  static final int[]    LATIN_DIGIT_VALUES = new int [256];
+  
+  static {
+    for (char c = 0; c < LATIN_TYPES.length; c++) {
+      LATIN_TYPES [c] = classify (c);
+      if (LATIN_TYPES [c] == DIGIT_CHAR) {
+        LATIN_DIGIT_VALUES [c] = Character.getNumericValue (c);
+      }
+    }
+  }
 
-  /** The String to be scanned. */
-  private    String    str;
+  /** The characters to be scanned. */
+  private    CharSequence str;
   
   /** The increment to use -- either +1 or -1. */
   private    int      increment;
@@ -64,8 +80,11 @@ public class StringScanner {
   /** delimiters used to indicate end of a field */
   private    String    delimiters = DEFAULT_DELIMITERS;  
   
-  /** The String broken into apparent words with spaces separating. */
-  private		 String		 wordStr;
+  /** 
+     The String broken into apparent words with spaces separating, or null
+     if it has not been needed yet.
+   */
+  private		 String		 wordStr = null;
   
   /** A pointer to a position in the word string, incremented as the scan progresses. */
   private		 int			 wordIndex;
@@ -104,6 +123,10 @@ public class StringScanner {
     System.out.println ("Word 3 = " + test4.getNextWord());
     System.out.println ("Word 4 = " + test4.getNextWord());
     System.out.println ("Word 5 = " + test4.getNextWord());
+    System.out.println ("Testing method reset");
+    test4.reset ("anotherTest");
+    System.out.println ("Word 1 = " + test4.getNextWord());
+    System.out.println ("Word 2 = " + test4.getNextWord());
   } // end of test method
 
   /**
@@ -142,7 +165,6 @@ public class StringScanner {
   public StringScanner (String str, int increment) 
       throws IllegalArgumentException {
     this.str = str;
-    wordStr = StringUtils.wordSpace (str, false);
     lng = str.length();
     this.increment = increment;
     resetIndex ();
@@ -151,6 +173,20 @@ public class StringScanner {
     }
   }
   
+  /**
+     Start scanning a new sequence of characters, using the same increment
+     as before. This allows one scanner to be reused for many strings, 
+     without creating a new scanner for each one.
+    
+     @param str  the characters to be scanned, one at a time.
+   */
+  public void reset (CharSequence str) {
+    this.str = str;
+    lng = str.length();
+    wordStr = null;
+    resetIndex ();
+  }
+  
   /**
     Parse a string to try to make a date out of it.
     
@@ -161,36 +197,50 @@ public class StringScanner {
                   and a "y" to indicate year. Default is "mdy".
    */
   public Date getDate (String inSeq) {
-    String seq;
-    char id;
+    return DateParser.toDate (getEpochDay (inSeq));
+  }
+  
+  /**
+    Parse a string to try to make a date out of it.
+    
+    @return Date composed from string, with some kind of punctuation between
+            the date components.
+    @param  inSeq String indicating the expected sequence of date components, 
+                  as for getDate.
+   */
+  public LocalDate getLocalDate (String inSeq) {
+    return LocalDate.ofEpochDay (getEpochDay (inSeq));
+  }
+  
+  /**
+    Parse a string to try to make a date out of it, without creating any
+    objects along the way. The sequence of date components is only 
+    examined the first time it is used.
+    
+    @return Date composed from string, as a number of days since 1970-01-01.
+    @param  inSeq String indicating the expected sequence of date components, 
+                  as for getDate.
+   */
+  public long getEpochDay (String inSeq) {
+    DateParser parser = DateParser.getShared (inSeq);
     int month = 1;
     int day = 1;
     int year = 1;
-    if (inSeq.length() >= 3) {
-      seq = inSeq.toLowerCase();
-    } else {
-      seq = "mdy";
-    }
     for (int i = 0; i < 3; i++) {
-      id = seq.charAt (i);
-      if (id == 'm') {
-        month = extractInteger (12);
+      int component = parser.getComponent (i);
+      if (component == DateParser.MONTH) {
+        month = extractInteger (DateParser.MAX_MONTH);
       }
       else
-      if (id == 'd') {
-        day = extractInteger (31);
+      if (component == DateParser.DAY) {
+        day = extractInteger (DateParser.MAX_DAY);
       }
       else
-      if (id == 'y') {
-        year = extractInteger (2200);
+      if (component == DateParser.YEAR) {
+        year = extractInteger (DateParser.MAX_YEAR);
       }
     }
-    if (year < 1900) {
-      year = year + 2000;
-    }
-    month = month - 1;
-    GregorianCalendar cal = new GregorianCalendar (year, month, day);
-    return cal.getTime();
+    return DateParser.toEpochDay (year, month, day);
   }
   
   /**
@@ -203,18 +253,75 @@ public class StringScanner {
      @param  upper   The upper bound of an acceptable integer to be returned
    */  
   public int extractInteger (int upper) {
-    stopAtCharType (DIGIT_CHAR);
+    long found = extractInteger (str, index, increment, upper);
+    int end = getExtractedEnd (found);
+    if (end != index) {
+      incrementIndex (end - index);
+    }
+    return getExtractedValue (found);
+  } // end of method extractInteger
+  
+  /**
+     Finds the next integer in a sequence of characters, without creating
+     any objects. Starting at the given position, skips characters until 
+     it finds a decimal digit, then takes digits until it reaches one that 
+     is not a digit, or that would make the integer larger than the upper 
+     bound. 
+    
+     @return  the integer and the position following it, packed together:
+              use getExtractedValue and getExtractedEnd to separate them.
+    
+     @param  s         the characters to be scanned
+     @param  position  the position at which to start scanning
+     @param  increment the direction of the scan: either +1 or -1
+     @param  upper     the upper bound of an acceptable integer
+   */
+  public static long extractInteger 
+      (CharSequence s, int position, int increment, int upper) {
+    int length = s.length();
+    int i = position;
+    while (i >= 0 && i < length 
+        && getCharType (s.charAt (i)) != DIGIT_CHAR) {
+      i = i + increment;
+    }
     int work = 0;
-    while ((moreChars()) 
-      && (nextCharType == DIGIT_CHAR)
-      && (((work * 10) + nextCharDigitValue) 
-        <= upper)) {
-      work = (work * 10) + nextCharDigitValue;
-      incrementIndex();
+    boolean more = true;
+    while (more && i >= 0 && i < length) {
+      char c = s.charAt (i);
+      if (getCharType (c) == DIGIT_CHAR
+          && ((work * 10) + getDigitValue (c)) <= upper) {
+        work = (work * 10) + getDigitValue (c);
+        i = i + increment;
+      } else {
+        more = false;
+      }
     }
-    return work;
+    return (((long)i) << 32) | work;
   } // end of method extractInteger
   
+  /**
+     Returns the integer found by the static extractInteger method.
+    
+     @return the integer found.
+    
+     @param found the result of extractInteger.
+   */
+  public static int getExtractedValue (long found) {
+    return (int)found;
+  }
+  
+  /**
+     Returns the position following the integer found by the static 
+     extractInteger method.
+    
+     @return the position at which scanning stopped.
+    
+     @param found the result of extractInteger.
+   */
+  public static int getExtractedEnd (long found) {
+    return (int)(found >> 32);
+  }
+  
   /**
      Returns the next delimited string (optionally quoted) 
      from a longer string.
@@ -284,6 +391,7 @@ public class StringScanner {
      @return  next apparent word.
    */
   public String getNextWord () {
+    String wordStr = getWordString();
     if (wordIndex < wordStr.length()
         && wordStr.charAt (wordIndex) == ' ') {
       incrementIndex();
@@ -332,7 +440,7 @@ public class StringScanner {
     if (lower >= lng) {
       return GlobalConstants.EMPTY_STRING;
     } else {
-      return str.substring (lower, upper);
+      return str.subSequence (lower, upper).toString();
     }
   } // end of substring
   
@@ -418,11 +526,26 @@ public class StringScanner {
       wordIndex = 0;
     } else {
       index = lng - 1;
-      wordIndex = wordStr.length() - 1;
+      wordIndex = getWordString().length() - 1;
     }
     setNextChar();
   }
   
+  /**
+     Returns the string broken into apparent words, preparing it the first 
+     time it is needed. Until then, the word position is only checked
+     against the start of the string.
+   */
+  private String getWordString () {
+    if (wordStr == null) {
+      wordStr = StringUtils.wordSpace (str.toString(), false);
+      if (wordIndex > wordStr.length()) {
+        wordIndex = wordStr.length();
+      }
+    }
+    return wordStr;
+  }
+  
   /**
      Increments the internal pointer by the increment (+1 or -1).</p>
    */
@@ -454,7 +577,7 @@ public class StringScanner {
     if (wordIndex < -1) {
       wordIndex = -1;
     } else
-    if (wordIndex > wordStr.length()) {
+    if (wordStr != null && wordIndex > wordStr.length()) {
       wordIndex = wordStr.length();
     }
     setNextChar();
@@ -482,22 +605,70 @@ public class StringScanner {
      Processes next character in the string, determining type of character.
    */
   private void setNextChar () {
-    if (index >= 0 && index < str.length()) {
+    if (index >= 0 && index < lng) {
       nextChar = str.charAt (index);
     } else {
       nextChar = GlobalConstants.SPACE;
     }
-    if (Character.isDigit (nextChar)) {
-      nextCharType = DIGIT_CHAR;
-      nextCharDigitValue = Character.getNumericValue (nextChar);
+    if (nextChar < LATIN_TYPES.length) {
+      nextCharType = LATIN_TYPES [nextChar];
+      if (nextCharType == DIGIT_CHAR) {
+        nextCharDigitValue = LATIN_DIGIT_VALUES [nextChar];
+      }
+    } else {
+      nextCharType = classify (nextChar);
+      if (nextCharType == DIGIT_CHAR) {
+        nextCharDigitValue = Character.getNumericValue (nextChar);
+      }
+    }
+  }
+  
+  /**
+     Returns the type of the given character: a digit, a letter, white
+     space or punctuation, as represented by DIGIT_CHAR, LETTER_CHAR,
+     SPACE_CHAR or PUNCT_CHAR. Latin-1 characters are looked up in a table.
+    
+     @return  character type (pattern character)
+    
+     @param c The character to be classified.
+   */
+  public static char getCharType (char c) {
+    if (c < LATIN_TYPES.length) {
+      return LATIN_TYPES [c];
+    } else {
+      return classify (c);
+    }
+  }
+  
+  /**
+     Returns the numeric value of a digit.
+    
+     @return  the value of the digit, from 0 through 9.
+    
+     @param c A character of type DIGIT_CHAR.
+   */
+  public static int getDigitValue (char c) {
+    if (c < LATIN_DIGIT_VALUES.length) {
+      return LATIN_DIGIT_VALUES [c];
+    } else {
+      return Character.getNumericValue (c);
+    }
+  }
+  
+  /**
+     Determines the type of a character from its Unicode properties.
+   */
+  private static char classify (char c) {
+    if (Character.isDigit (c)) {
+      return DIGIT_CHAR;
     } else
-    if (Character.isLetter (nextChar)) {
-      nextCharType = LETTER_CHAR;
+    if (Character.isLetter (c)) {
+      return LETTER_CHAR;
     } else
-    if (Character.isWhitespace (nextChar)) {
-      nextCharType = SPACE_CHAR;
+    if (Character.isWhitespace (c)) {
+      return SPACE_CHAR;
     } else {
-      nextCharType = PUNCT_CHAR;
+      return PUNCT_CHAR;
     }
   }
   
@@ -541,6 +712,6 @@ public class StringScanner {
     
      @return  the original string used in the constructor. 
    */
-  public String getString () { return str; }
+  public String getString () { return str.toString(); }
   
 } // end of class StringScanner
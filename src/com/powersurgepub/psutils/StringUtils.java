@@ -19,6 +19,8 @@ package com.powersurgepub.psutils;
   import java.awt.*;
   import java.io.*;
   import java.net.*;
+  import java.util.ArrayList;
+  import java.util.concurrent.*;
   
 /**
    A utility class containing static methods to do things
@@ -35,6 +37,26 @@ public class StringUtils {
   public final static String HTTP = "http://";
   public final static char   FILE_NAME_WORD_SEPARATOR = '-';
   public static final String SP_SITES = "/sites";
+  
+  /** Maximum number of from strings, and of to strings for each, kept for replaceString. */
+  public final static int    REPLACE_CACHE_SIZE = 256;
+  
+  /** Compiled pairs for replaceString, keyed by from and then to strings. */
+  private static final 
+      ConcurrentHashMap<String, ConcurrentHashMap<String, StringFromToTrie>> 
+        replaceCache 
+          = new ConcurrentHashMap<String, ConcurrentHashMap<String, StringFromToTrie>>();
+  
+  private static final LinkConverter LINK_CONVERTER = new LinkConverter();
+  
+  /** Maximum number of lower-case strings, and of upper-case strings for each, kept for indexOfIgnoreCase. */
+  public final static int    SEARCH_CACHE_SIZE = 256;
+  
+  /** Compiled searchers for indexOfIgnoreCase, keyed by lower-case and then upper-case strings. */
+  private static final 
+      ConcurrentHashMap<String, ConcurrentHashMap<String, IgnoreCaseSearcher>> 
+        searchCache 
+          = new ConcurrentHashMap<String, ConcurrentHashMap<String, IgnoreCaseSearcher>>();
 
   /**
      Tests the class.
@@ -107,12 +129,15 @@ public class StringUtils {
     testAlmostEqual ("St.", "Street");
     testAlmostEqual ("Mr.", "Mister");
     testAlmostEqual ("This", "That");
+    testAlmostEqualIndex ("St.", 
+        new String[] {"Street", "Road", "Str", "Stop", "Saint", "st"});
     testIndexOfIgnoreCase ("and", "Andover, MA");
     testIndexOfIgnoreCase ("ma", "Andover, MA");
     testIndexOfIgnoreCase ("over", "Andover, MA");
     testIndexOfIgnoreCase ("Andy", "Andover, MA");
     testIndexOfIgnoreCase ("land", "Andover, MA");
     testIndexOfIgnoreCase ("Andy", "And Andy Andover");
+    testFindAllIgnoreCase (new String[] {"and", "MA"}, "And Andy Andover, MA");
     System.out.println (" ");
     System.out.println ("Testing method cleanURLString");
     testCleanURLString ("http://");
@@ -120,6 +145,9 @@ public class StringUtils {
     testCleanURLString (" ");
     testCleanURLString ("www.powersurgepub.com");
     testCleanURLString ("<www.amazon.com>");
+    System.out.println (" ");
+    System.out.println ("Testing method convertLinks");
+    testConvertLinks ("See https://www.powersurgepub.com and http://x.org.");
   }
   
   private static void testHTMLCoding (String inStr) {
@@ -205,6 +233,23 @@ public class StringUtils {
        s1 + " almost equal to " + s2 + "? " + String.valueOf (almostEqual(s1, s2)));
     }
   
+  private static void testAlmostEqualIndex (String s1, String[] strings) {
+    AlmostEqualIndex index = new AlmostEqualIndex();
+    for (int i = 0; i < strings.length; i++) {
+      index.add (strings [i]);
+    }
+    int[] matches = index.indexesOf (s1);
+    StringBuilder found = new StringBuilder();
+    for (int i = 0; i < matches.length; i++) {
+      if (i > 0) {
+        found.append (", ");
+      }
+      found.append (index.get (matches [i]));
+    }
+    System.out.println ("Strings almost equal to " + s1 + ": " 
+        + found.toString());
+  }
+  
   private static void testIndexOfIgnoreCase (String s1, String s2) {
     String sLower = s1.toLowerCase();
     String sUpper = s1.toUpperCase();
@@ -213,6 +258,25 @@ public class StringUtils {
         + " at " + String.valueOf (indexOfIgnoreCase(sLower, sUpper, s2, 0)));
   }
   
+  private static void testFindAllIgnoreCase (String[] needles, String s2) {
+    IgnoreCaseSearcher searcher = new IgnoreCaseSearcher (needles);
+    int[] found = searcher.findAll (s2);
+    StringBuilder positions = new StringBuilder();
+    for (int i = 0; i < found.length; i++) {
+      if (i > 0) {
+        positions.append (", ");
+      }
+      positions.append (String.valueOf (found [i]));
+    }
+    System.out.println (String.valueOf (needles.length) + " strings"
+        + " found within " + s2
+        + " at " + positions.toString());
+  }
+  
+  private static void testConvertLinks (String text) {
+    System.out.println ("Text " + text + " becomes " + convertLinks (text));
+  }
+  
   private static void testCleanURLString (String dirty) {
     String clean = cleanURLString (dirty);
     System.out.println ("URL " + dirty + " becomes " + clean);
@@ -1371,9 +1435,7 @@ public class StringUtils {
     @param inString   String to be encoded.
    */
   public static String encodeHTML (String inString) {
-    StringConverter sc = StringConverter.getMinimumHTML();
-    sc.setForward (true);
-    return sc.convert (inString);
+    return StringConverter.getSharedHTMLEncoder().convert (inString);
     /*
     StringBuffer s = new StringBuffer (inString);
     char lastCRLFChar = ' ';
@@ -1488,9 +1550,7 @@ public class StringUtils {
     @param inString   String to be decoded.
    */
   public static String decodeHTML (String inString) {
-    StringConverter sc = StringConverter.getMinimumHTML();
-    sc.setForward (false);
-    return sc.convert (inString);
+    return StringConverter.getSharedHTMLDecoder().convert (inString);
     /*
     StringBuffer s = new StringBuffer (inString);
 		char workChar = ' ';
@@ -1521,7 +1581,9 @@ public class StringUtils {
   /**
      Replaces a from String, when found in an input String, with a to
      String. All occurrences of the from String will be replaced. The from
-     String and the to String may be different lengths. 
+     String and the to String may be different lengths. Recently used pairs
+     of from and to Strings are kept compiled, so repeated calls with
+     the same pair do not compile it again. 
     
      @return Input string, but with any occurrences of the from string
              replaced with the to string.
@@ -1534,9 +1596,37 @@ public class StringUtils {
    */
   public static String replaceString 
       (String inString, String fromString, String toString) {
-    StringConverter sc = new StringConverter();
-    sc.add (fromString, toString);
-    return sc.convert (inString);
+    if (fromString.length() == 0) {
+      return inString;
+    }
+    int first = inString.indexOf (fromString);
+    if (first < 0) {
+      return inString;
+    }
+    ConcurrentHashMap<String, StringFromToTrie> tries 
+        = replaceCache.get (fromString);
+    if (tries == null) {
+      if (replaceCache.size() >= REPLACE_CACHE_SIZE) {
+        replaceCache.clear();
+      }
+      tries = new ConcurrentHashMap<String, StringFromToTrie>();
+      ConcurrentHashMap<String, StringFromToTrie> existing 
+          = replaceCache.putIfAbsent (fromString, tries);
+      if (existing != null) {
+        tries = existing;
+      }
+    }
+    StringFromToTrie trie = tries.get (toString);
+    if (trie == null) {
+      ArrayList<StringFromTo> pair = new ArrayList<StringFromTo>(1);
+      pair.add (new StringFromTo (fromString, toString));
+      trie = new StringFromToTrie (pair, true);
+      if (tries.size() >= REPLACE_CACHE_SIZE) {
+        tries.clear();
+      }
+      tries.put (toString, trie);
+    }
+    return trie.convert (inString, first);
     /*
     int i = 0;
     int fromLength = fromString.length();
@@ -1654,7 +1744,11 @@ public class StringUtils {
   } // end method almostEqual
   
   /**
-     Searches for a substring within a string, ignoring case. 
+     Searches for a substring within a string, ignoring case. Searchers 
+     compiled for recently used substrings are cached, so repeated calls
+     with the same substring need not compile it again. Callers searching
+     many strings for the same substring may prefer to create their own
+     IgnoreCaseSearcher. 
     
      @return -1 if the substring is not found, otherwise the starting
              position of the substring within the string.
@@ -1671,39 +1765,29 @@ public class StringUtils {
   public static int indexOfIgnoreCase 
       (String findStringLower, String findStringUpper, 
           String searchString, int start) {
-    int s = start;
-    if (s < 0) {
-      s = 0;
+    ConcurrentHashMap<String, IgnoreCaseSearcher> searchers 
+        = searchCache.get (findStringLower);
+    if (searchers == null) {
+      if (searchCache.size() >= SEARCH_CACHE_SIZE) {
+        searchCache.clear();
+      }
+      searchers = new ConcurrentHashMap<String, IgnoreCaseSearcher>();
+      ConcurrentHashMap<String, IgnoreCaseSearcher> existing 
+          = searchCache.putIfAbsent (findStringLower, searchers);
+      if (existing != null) {
+        searchers = existing;
+      }
     }
-    int len = findStringLower.length();
-    int x = searchString.length() - len + 1;
-    int i, j;
-    boolean matched = false;
-    while (s >= 0 && (s < x) && (! matched)) {
-      if (searchString.charAt (s) == findStringLower.charAt (0)
-          || searchString.charAt (s) == findStringUpper.charAt (0)) {
-        i = s + 1;
-        j = 1;
-        matched = true;
-        while (matched && j < len) {
-          if (searchString.charAt (i) == findStringLower.charAt (j)
-              || searchString.charAt (i) == findStringUpper.charAt (j)) {
-            i++;
-            j++;
-          } else {
-            matched = false;
-          } // end if not matched
-        } // end while still matching
-      } // end if first character found
-      if (! matched) {
-        s++;
-      }
-    } // end while more characters to search
-    if (! matched) {
-      s = -1;
+    IgnoreCaseSearcher searcher = searchers.get (findStringUpper);
+    if (searcher == null) {
+      searcher = new IgnoreCaseSearcher (findStringLower, findStringUpper);
+      if (searchers.size() >= SEARCH_CACHE_SIZE) {
+        searchers.clear();
+      }
+      searchers.put (findStringUpper, searcher);
     }
-		return s;
-	} // end of method indexOfIgnoreCase
+    return searcher.indexOf (searchString, start);
+  } // end of method indexOfIgnoreCase
   
   /**
    Converts a string to an HTML ID, removing white space, 
@@ -1997,56 +2081,14 @@ public class StringUtils {
   
   /**
    Convert a URL to an HTML anchor tag with that URL as the href value. 
+   Both http and https URLs are converted, in a single pass through the text.
   
    @param  text The text containing the URL. 
   
    @return The anchor tag. 
    */
   public static String convertLinks (String text) {
-    StringBuffer out = new StringBuffer (text);
-    int i = 0;
-    int l = 7;
-    while (i >= 0 && i < out.length()) {
-      int j = out.indexOf ("http://", i);
-      if (j < 0) {
-        j = out.indexOf ("https://", i);
-        l = 8;
-      }
-      if (j >= 0) {
-        int k = j + l;
-        char c = ' ';
-        boolean done = false;
-        while (! done) {
-          if (k >= out.length()) {
-            done = true;
-          } else {
-            c = out.charAt (k);
-            if (c == ' '
-                || c == '\r'
-                || c == '\n'
-                || c == '\t'
-                || c == '<') {
-              done = true;
-            } else {
-              k++;
-            } // end if not a stopper character
-          } // end if we have more characters in string
-        } // end while trying to find end of link
-        if (out.charAt (k - 1) == '.') {
-          k = k - 1;
-        }
-        String url = out.substring (j, k);
-        String anchor = "<a href=\"" + url + "\" target=\"ref\">";
-        out.insert (j, anchor);
-        k = k + anchor.length();
-        String endAnchor = "</a>";
-        out.insert (k, endAnchor);
-        i = k + endAnchor.length();
-      } else {
-        i = j;
-      }
-    }
-    return out.toString();
+    return LINK_CONVERTER.convert (text);
   }
 	
 } // end of StringUtils class
@@ -19,6 +19,14 @@ package com.powersurgepub.psutils;
   import com.powersurgepub.psutils.*;
   import java.io.*;
   import java.net.URL;
+  import java.nio.channels.*;
+  import java.nio.charset.*;
+  import java.nio.file.*;
+  import java.nio.file.attribute.*;
+  import java.util.*;
+  import java.util.concurrent.TimeUnit;
+  import java.util.stream.*;
+  import java.util.zip.*;
   import com.apple.mrj.MRJOSType;
   import com.apple.mrj.MRJFileUtils;
 import com.powersurgepub.xos2.XOS;
@@ -29,6 +37,27 @@ import com.powersurgepub.xos2.XOS;
  */
 public class TextFile extends File {
   
+  /** Compress or decompress according to the file name. */
+  public   static final int COMPRESSION_AUTO    = 0;
+  
+  /** Neither compress nor decompress. */
+  public   static final int COMPRESSION_NONE    = 1;
+  
+  /** Use the gzip format, normally found in files ending in ".gz". */
+  public   static final int COMPRESSION_GZIP    = 2;
+  
+  /** Use the zlib deflate format, normally found in files ending in ".zz". */
+  public   static final int COMPRESSION_DEFLATE = 3;
+  
+  /** 
+     Compress or decompress according to the file name; failing that, 
+     decompress input that starts with the gzip signature. 
+   */
+  public   static final int COMPRESSION_DETECT  = 4;
+  
+  /** Number of bytes to be buffered on the compressed side of a codec. */
+  public   static final int COMPRESSED_BUFFER_SIZE = 64 * 1024;
+  
   /** Open and close events are logged, and data read and written is sent as log data. */
   private  Logger       log;
   
@@ -77,12 +106,39 @@ public class TextFile extends File {
   /** The buffered reader used for input. */
   private  BufferedReader textFileBufReader;
   
+  /** The NIO line reader used for fast input, when requested. */
+  private  LineReader   lineReader;
+  
+  /** Should input be read through a memory-mapped LineReader? */
+  private  boolean      fastInput = false;
+  
+  /** The type of compression to be used for input and output. */
+  private  int          compression = COMPRESSION_AUTO;
+  
+  /** The charset to be used for input and output, or null for the platform default. */
+  private  Charset      charset = null;
+  
   /** The writer used when output is requested. */
   private  FileWriter   textFileWriter;
   
   /** The buffered writer used for output. */
   private  BufferedWriter textFileBufWriter;
   
+  /** The chunked line writer used for fast output, when requested. */
+  private  LineWriter   lineWriter;
+  
+  /** Should output be written through a LineWriter? */
+  private  boolean      fastOutput = false;
+  
+  /** The number of characters to be buffered for fast output. */
+  private  int          outputBufferSize = LineWriter.DEFAULT_BUFFER_SIZE;
+  
+  /** 
+     The number of full buffers that may wait to be written by a background 
+     thread, or zero to write fast output on the calling thread. 
+   */
+  private  int          outputQueueCapacity = 0;
+  
   /** 
      The sequentially assigned line number of the last record
      read or written.
@@ -95,6 +151,15 @@ public class TextFile extends File {
   /** The line being read or written. */
   private  String       line;
   
+  /** The file being followed, if any. */
+  private  FileChannel  followChannel = null;
+  
+  /** The position in the followed file following the last line read. */
+  private  long         followOffset = 0;
+  
+  /** The file system's key for the followed file, to detect rotation. */
+  private  Object       followKey = null;
+  
   /** Is this file currently open for input? */
   private  boolean      openAsInput = false;
   
@@ -202,15 +267,37 @@ public class TextFile extends File {
    */
   public String readLine () 
       throws IOException, FileNotFoundException {
-    line = GlobalConstants.EMPTY_STRING;
+    line = readLineSequence().toString();
+    return line;
+  }
+  
+  /**
+     Returns the next line from the text file, as for readLine. When fast 
+     input has been requested, the line is returned as a view of the 
+     reader's buffer, without being copied, and remains valid only until 
+     the next line is read. 
+     
+     @return    The next line in the file (or an empty string at end of file).
+    
+     @throws IOException If read failure.
+     @throws FileNotFoundException On first read for file, if file name 
+                                   passed to constructor cannot be found.
+   */
+  public CharSequence readLineSequence () 
+      throws IOException, FileNotFoundException {
+    CharSequence next = GlobalConstants.EMPTY_STRING;
     if ((! openAsInput) && (! atEnd)) {
       this.openForInput();
     }
     if (openAsInput) {
       try { 
-        line = textFileBufReader.readLine();
-        if (line == null) {
-          line = GlobalConstants.EMPTY_STRING;
+        if (lineReader == null) {
+          next = textFileBufReader.readLine();
+        } else {
+          next = lineReader.readLineSequence();
+        }
+        if (next == null) {
+          next = GlobalConstants.EMPTY_STRING;
           atEnd = true;
           // ensureLog();
           // logEvent.setSeverity (LogEvent.NORMAL);
@@ -222,13 +309,13 @@ public class TextFile extends File {
           lineNumber++;
           if (dataLogging) {
             ensureLog();
-            logData.setData (line);
+            logData.setData (next.toString());
             logData.setSequenceNumber (lineNumber);
             log.nextLine (logData);
           }
         }
       } catch (IOException e) {
-        line = GlobalConstants.EMPTY_STRING;
+        next = GlobalConstants.EMPTY_STRING;
         atEnd = true;
         throw e;
       }
@@ -236,7 +323,301 @@ public class TextFile extends File {
         this.close();
       }
     }
-    return line;
+    return next;
+  }
+  
+  /**
+     Reads every line of the file on many threads at once, using a 
+     ParallelLineReader with the common fork/join pool, and passes each line 
+     to the given handler, along with its line number. 
+     
+     @return    The number of lines read.
+    
+     @param handler The handler for each line, which must be thread-safe.
+    
+     @throws IOException If read failure.
+   */
+  public long processLines (LineHandler handler)
+      throws IOException {
+    return processLines (handler, new ParallelLineReader());
+  }
+  
+  /**
+     Reads every line of the file on many threads at once, and passes each 
+     line to the given handler, along with its line number. If data logging
+     is on, then each line is logged with its own line number as its 
+     sequence number. A compressed file, or a file opened from a URL, is 
+     read on a single thread, from its beginning; any reading or writing 
+     already in progress is closed first. 
+     
+     @return    The number of lines read.
+    
+     @param handler The handler for each line, which must be thread-safe.
+     @param reader  The parallel reader to be used.
+    
+     @throws IOException If read failure.
+   */
+  public long processLines (final LineHandler handler, 
+      ParallelLineReader reader)
+        throws IOException {
+    LineHandler lineHandler = handler;
+    if (dataLogging) {
+      ensureLog();
+      final Logger logger = log;
+      final String sourceId = fileId;
+      lineHandler = new LineHandler() {
+        public void handleLine (CharSequence line, long lineNumber) {
+          synchronized (logger) {
+            logger.nextLine (new LogData 
+                (line.toString(), sourceId, (int)lineNumber));
+          }
+          handler.handleLine (line, lineNumber);
+        }
+      };
+    }
+    long lines = 0;
+    if (isURL || getInputCompression() != COMPRESSION_NONE) {
+      if (openAsInput || openAsOutput) {
+        close();
+      }
+      lineNumber = 0;
+      openForInput();
+      CharSequence next = readLineSequence();
+      while (! atEnd) {
+        handler.handleLine (next, lineNumber);
+        next = readLineSequence();
+      }
+      lines = lineNumber;
+    } else {
+      if (! this.exists() ) {
+        throw new FileNotFoundException (this.toString() + " does not exist.");
+      }
+      lines = reader.process (this, getEffectiveCharset(), lineHandler);
+      lineNumber = (int)lines;
+      ensureLog();
+      logEvent.setSeverity (LogEvent.NORMAL);
+      logEvent.setMessage (String.valueOf (lines) 
+          + " lines read from " + filePathAndName);
+      logEvent.setDataRelated (false);
+      log.recordEvent (logEvent);
+    }
+    return lines;
+  }
+  
+  /**
+     Returns the lines of the file as a lazy stream. Unlike readLine, the
+     stream ends without returning an extra empty line. The file is read 
+     independently of readLine, and is closed when the stream is closed, so 
+     the stream should be used within a try-with-resources statement. <p>
+     
+     When the file is encoded in a charset such as UTF-8, and is not 
+     compressed, a parallel stream will read different parts of the file on 
+     different threads. I/O errors
+     encountered while reading are thrown as UncheckedIOExceptions. 
+     
+     @return    The lines in the file.
+    
+     @throws IOException If the file cannot be opened.
+   */
+  public Stream<String> lines ()
+      throws IOException {
+    final Closeable source;
+    LineSpliterator spliterator;
+    if (! isURL && ! this.exists() ) {
+      throw new FileNotFoundException (this.toString() + " does not exist.");
+    }
+    int inputCompression = getInputCompression();
+    if (isURL || inputCompression != COMPRESSION_NONE) {
+      LineReader reader = new LineReader 
+          (openInputStream (inputCompression), getEffectiveCharset());
+      source = reader;
+      spliterator = new LineSpliterator (reader);
+    } else {
+      FileChannel channel = new RandomAccessFile (this, "r").getChannel();
+      source = channel;
+      spliterator = new LineSpliterator 
+          (channel, 0, channel.size(), getEffectiveCharset());
+    }
+    return StreamSupport.stream (spliterator, false).onClose (new Runnable() {
+      public void run () {
+        try {
+          source.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException (e);
+        }
+      }
+    });
+  }
+  
+  /**
+     Reads any complete lines added to the end of the file since it was last
+     read by this method, passing each to the handler. The first call reads 
+     every complete line in the file. A final line without a terminator is 
+     left until its terminator is written. <p>
+     
+     Line numbers continue from one call to the next. If the file has been 
+     truncated, it is read again from the beginning; if it has been replaced
+     by a new file of the same name, as when a log is rotated, the rest of 
+     the old file is read, and then the new file from its beginning. 
+     Replacement can only be detected where the file system supplies file 
+     keys. <p>
+     
+     Lines are found by searching for line feeds and carriage returns, so 
+     the file must be in a charset, such as UTF-8, in which these are 
+     single bytes. 
+     
+     @return    The number of lines read.
+    
+     @param handler The handler for each line read.
+    
+     @throws IOException If read failure, or if the charset is not suitable.
+   */
+  public int readAppendedLines (LineHandler handler)
+      throws IOException {
+    Charset followCharset = getEffectiveCharset();
+    if (! ParallelLineReader.isSplittable (followCharset)) {
+      throw new IOException (this.toString() + " cannot be followed in "
+          + followCharset.name());
+    }
+    Path path = toPath();
+    int count = 0;
+    boolean exists = Files.exists (path);
+    Object key = null;
+    if (exists) {
+      key = Files.readAttributes (path, BasicFileAttributes.class).fileKey();
+    }
+    if (followChannel != null && key != null && (! key.equals (followKey))) {
+      count = count + readFollowed (handler, followChannel.size(), true);
+      followChannel.close();
+      followChannel = null;
+      recordFollowEvent (" was replaced");
+    }
+    if (followChannel == null) {
+      if (! exists) {
+        return count;
+      }
+      followChannel = FileChannel.open (path, StandardOpenOption.READ);
+      followKey = key;
+      followOffset = 0;
+    }
+    long size = followChannel.size();
+    if (size < followOffset) {
+      followOffset = 0;
+      recordFollowEvent (" was truncated");
+    }
+    count = count + readFollowed (handler, size, false);
+    return count;
+  }
+  
+  /**
+     Reads lines from the followed file, starting where the last read left 
+     off.
+    
+     @return    The number of lines read.
+    
+     @param handler The handler for each line read.
+     @param size    The current size of the file.
+     @param all     True to read a final line without a terminator.
+   */
+  private int readFollowed (LineHandler handler, long size, boolean all)
+      throws IOException {
+    long end = size;
+    if (! all) {
+      end = ParallelLineReader.lastLineEnd (followChannel, followOffset, size);
+    }
+    if (end <= followOffset) {
+      return 0;
+    }
+    LineReader reader = new LineReader 
+        (followChannel, followOffset, end, getEffectiveCharset());
+    int count = 0;
+    CharSequence next = reader.readLineSequence();
+    while (next != null) {
+      lineNumber++;
+      count++;
+      if (dataLogging) {
+        ensureLog();
+        logData.setData (next.toString());
+        logData.setSequenceNumber (lineNumber);
+        log.nextLine (logData);
+      }
+      handler.handleLine (next, lineNumber);
+      next = reader.readLineSequence();
+    }
+    followOffset = end;
+    return count;
+  }
+  
+  private void recordFollowEvent (String happening) {
+    ensureLog();
+    logEvent.setSeverity (LogEvent.NORMAL);
+    logEvent.setMessage (filePathAndName + happening + " after " 
+        + String.valueOf (lineNumber) + " lines");
+    logEvent.setDataRelated (false);
+    log.recordEvent (logEvent);
+  }
+  
+  /**
+     Follows the file as lines are added to it, passing each complete line 
+     to the handler, until the calling thread is interrupted. The file's 
+     directory is watched for changes, where the file system allows, and 
+     otherwise the file is polled. 
+    
+     @param handler    The handler for each line read.
+     @param pollMillis The longest time to wait between looks at the file.
+    
+     @throws IOException If read failure.
+   */
+  public void follow (LineHandler handler, long pollMillis)
+      throws IOException {
+    WatchService watcher = null;
+    Path directory = toPath().toAbsolutePath().getParent();
+    try {
+      watcher = directory.getFileSystem().newWatchService();
+      directory.register (watcher, 
+          StandardWatchEventKinds.ENTRY_CREATE, 
+          StandardWatchEventKinds.ENTRY_MODIFY);
+    } catch (IOException e) {
+      watcher = null;
+    } catch (UnsupportedOperationException e) {
+      watcher = null;
+    }
+    try {
+      while (! Thread.currentThread().isInterrupted()) {
+        readAppendedLines (handler);
+        if (watcher == null) {
+          Thread.sleep (pollMillis);
+        } else {
+          WatchKey key = watcher.poll (pollMillis, TimeUnit.MILLISECONDS);
+          if (key != null) {
+            key.pollEvents();
+            key.reset();
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      if (watcher != null) {
+        watcher.close();
+      }
+    }
+  }
+  
+  /**
+     Stops following the file, closing it. Following may be started again
+     later, but will then begin from the start of the file. 
+    
+     @throws IOException If there is trouble closing the disk file.
+   */
+  public void stopFollowing ()
+      throws IOException {
+    if (followChannel != null) {
+      followChannel.close();
+      followChannel = null;
+      followOffset = 0;
+      followKey = null;
+    }
   }
   
   /**
@@ -253,9 +634,13 @@ public class TextFile extends File {
     openAsInput = false;
     atEnd = true;
     if (isURL) {
-      urlIn = url.openStream();
-      urlReader = new InputStreamReader (urlIn);
-      textFileBufReader = new BufferedReader (urlReader);
+      InputStream in = openInputStream (getInputCompression());
+      if (fastInput) {
+        lineReader = new LineReader (in, getEffectiveCharset());
+      } else {
+        urlReader = new InputStreamReader (in, getEffectiveCharset());
+        textFileBufReader = new BufferedReader (urlReader);
+      }
     } else {
       if (! this.exists() ) {
         throw new FileNotFoundException (this.toString() + " does not exist.");
@@ -266,8 +651,23 @@ public class TextFile extends File {
       if (! this.canRead () ) {
         throw new FileNotFoundException (this.toString() + " cannot be read.");
       }
-      textFileReader = new FileReader (this);
-      textFileBufReader = new BufferedReader (textFileReader);
+      int inputCompression = getInputCompression();
+      if (fastInput && inputCompression == COMPRESSION_NONE) {
+        lineReader = new LineReader (this, getEffectiveCharset());
+      }
+      else
+      if (fastInput) {
+        lineReader = new LineReader 
+            (openInputStream (inputCompression), getEffectiveCharset());
+      }
+      else
+      if (charset != null || inputCompression != COMPRESSION_NONE) {
+        textFileBufReader = new BufferedReader (new InputStreamReader 
+            (openInputStream (inputCompression), getEffectiveCharset()));
+      } else {
+        textFileReader = new FileReader (this);
+        textFileBufReader = new BufferedReader (textFileReader);
+      }
     }
     ensureLog();
     // logEvent.setSeverity (LogEvent.NORMAL);
@@ -278,6 +678,201 @@ public class TextFile extends File {
     atEnd = false;
   }
   
+  /**
+     Returns the charset to be used for input and output. 
+   */
+  private Charset getEffectiveCharset () {
+    if (charset == null) {
+      return Charset.defaultCharset();
+    } else {
+      return charset;
+    }
+  }
+  
+  /**
+     Requests that input be read through NIO, memory-mapping the file and 
+     finding line boundaries directly, rather than through a BufferedReader.
+     This must be requested before the file is opened. 
+    
+     @param fastInput True to read through a memory-mapped LineReader.
+   */
+  public void setFastInput (boolean fastInput) {
+    this.fastInput = fastInput;
+  }
+  
+  public boolean isFastInput () {
+    return fastInput;
+  }
+  
+  /**
+     Requests that output be collected in large buffers and written through
+     a LineWriter, rather than through a BufferedWriter. This must be 
+     requested before the file is opened. 
+    
+     @param fastOutput True to write through a LineWriter.
+   */
+  public void setFastOutput (boolean fastOutput) {
+    this.fastOutput = fastOutput;
+  }
+  
+  public boolean isFastOutput () {
+    return fastOutput;
+  }
+  
+  /**
+     Sets the number of characters to be buffered for fast output. 
+    
+     @param outputBufferSize The size of each output buffer.
+   */
+  public void setOutputBufferSize (int outputBufferSize) {
+    this.outputBufferSize = outputBufferSize;
+  }
+  
+  public int getOutputBufferSize () {
+    return outputBufferSize;
+  }
+  
+  /**
+     Sets the number of full buffers that may wait to be written by a 
+     background thread, when fast output has been requested. With a 
+     capacity of zero, the default, buffers are written on the thread 
+     calling writeLine. 
+    
+     @param outputQueueCapacity The number of buffers that may wait to be 
+                                written, or zero for no background thread.
+   */
+  public void setOutputQueueCapacity (int outputQueueCapacity) {
+    this.outputQueueCapacity = outputQueueCapacity;
+  }
+  
+  public int getOutputQueueCapacity () {
+    return outputQueueCapacity;
+  }
+  
+  /**
+     Sets the charset in which the file is encoded. This must be set before 
+     the file is opened. 
+    
+     @param charset The charset of the file, or null for the platform default.
+   */
+  public void setCharset (Charset charset) {
+    this.charset = charset;
+  }
+  
+  /**
+     Returns the charset in which the file is encoded. 
+    
+     @return The charset of the file, or null if the platform default is
+             to be used.
+   */
+  public Charset getCharset () {
+    return charset;
+  }
+  
+  /**
+     Opens a stream of bytes from the file or URL, decompressing them if 
+     necessary. 
+    
+     @param type The type of compression used for the input.
+   */
+  private InputStream openInputStream (int type)
+      throws IOException {
+    InputStream in;
+    if (isURL) {
+      urlIn = url.openStream();
+      in = urlIn;
+    } else {
+      in = new FileInputStream (this);
+    }
+    if (type == COMPRESSION_DETECT) {
+      
+      // Look for the gzip signature, then read the same bytes again
+      BufferedInputStream buffered 
+          = new BufferedInputStream (in, COMPRESSED_BUFFER_SIZE);
+      buffered.mark (2);
+      boolean gzip = (buffered.read() == 0x1f && buffered.read() == 0x8b);
+      buffered.reset();
+      if (gzip) {
+        return new GZIPInputStream (buffered, COMPRESSED_BUFFER_SIZE);
+      } else {
+        return buffered;
+      }
+    }
+    else
+    if (type == COMPRESSION_GZIP) {
+      return new GZIPInputStream (in, COMPRESSED_BUFFER_SIZE);
+    }
+    else
+    if (type == COMPRESSION_DEFLATE) {
+      return new InflaterInputStream 
+          (new BufferedInputStream (in, COMPRESSED_BUFFER_SIZE));
+    } else {
+      return in;
+    }
+  }
+  
+  /**
+     Determines the type of compression used for input, without reading 
+     it. Unless a type has been set, this is determined from the file name. 
+    
+     @return The type of compression used for input: COMPRESSION_DETECT 
+             if the input is to be examined as it is read.
+   */
+  private int getInputCompression () {
+    int type = compression;
+    if (type == COMPRESSION_AUTO || type == COMPRESSION_DETECT) {
+      int forName = getCompressionForName (fileName);
+      if (forName != COMPRESSION_AUTO) {
+        type = forName;
+      }
+    }
+    if (type == COMPRESSION_AUTO) {
+      type = COMPRESSION_NONE;
+    }
+    return type;
+  }
+  
+  /**
+     Determines the type of compression indicated by a file name's extension.
+    
+     @return COMPRESSION_GZIP for ".gz", COMPRESSION_DEFLATE for ".zz" or 
+             ".deflate", and otherwise COMPRESSION_AUTO.
+    
+     @param name The name of the file.
+   */
+  public static int getCompressionForName (String name) {
+    String lower = name.toLowerCase();
+    if (lower.endsWith (".gz")) {
+      return COMPRESSION_GZIP;
+    }
+    else
+    if (lower.endsWith (".zz") || lower.endsWith (".deflate")) {
+      return COMPRESSION_DEFLATE;
+    } else {
+      return COMPRESSION_AUTO;
+    }
+  }
+  
+  /**
+     Sets the type of compression to be used for input and output. By 
+     default, files ending in ".gz" are read and written in gzip format, 
+     files ending in ".zz" or ".deflate" in zlib deflate format, and other 
+     files are neither compressed nor decompressed. COMPRESSION_DETECT 
+     also reads other files as gzip if they start with the gzip signature, 
+     though they can then only be read as a stream. 
+     This must be set before the file is opened. 
+    
+     @param compression One of the COMPRESSION constants defined by this 
+                        class.
+   */
+  public void setCompression (int compression) {
+    this.compression = compression;
+  }
+  
+  public int getCompression () {
+    return compression;
+  }
+  
   /**
      Indicates whether the file has reached its end.</p>
     
@@ -303,7 +898,11 @@ public class TextFile extends File {
       openForOutput();
     }
     if (openAsOutput) {
-      textFileBufWriter.write(line, 0, line.length());
+      if (lineWriter == null) {
+        textFileBufWriter.write(line, 0, line.length());
+      } else {
+        lineWriter.write (line);
+      }
       if (dataLogging) {
         ensureLog();
         logData.setData (line);
@@ -330,8 +929,12 @@ public class TextFile extends File {
       openForOutput();
     }
     if (openAsOutput) {
-      textFileBufWriter.write(line, 0, line.length());
-      textFileBufWriter.newLine();
+      if (lineWriter == null) {
+        textFileBufWriter.write(line, 0, line.length());
+        textFileBufWriter.newLine();
+      } else {
+        lineWriter.writeLine (line);
+      }
       lineNumber++;
       if (dataLogging) {
         ensureLog();
@@ -343,6 +946,45 @@ public class TextFile extends File {
     return;
   } // end method writeLine
   
+  /**
+     Writes a collection of lines to the text file, as if each were passed
+     to writeLine. 
+     
+     @param lines   The lines to be written to the text file.
+    
+     @throws IOException If there is trouble writing to the disk file.
+   */
+  public void writeLines (Collection<String> lines) 
+      throws IOException {
+    writeAll (lines.iterator());
+  }
+  
+  /**
+     Writes every line returned by an iterator to the text file, as if each 
+     were passed to writeLine. 
+     
+     @param lines   The lines to be written to the text file.
+    
+     @throws IOException If there is trouble writing to the disk file.
+   */
+  public void writeAll (Iterator<String> lines) 
+      throws IOException {
+    if (! openAsOutput) {
+      openForOutput();
+    }
+    if (lineWriter != null && (! dataLogging)) {
+      while (lines.hasNext()) {
+        line = lines.next();
+        lineWriter.writeLine (line);
+        lineNumber++;
+      }
+    } else {
+      while (lines.hasNext()) {
+        writeLine (lines.next());
+      }
+    }
+  }
+  
   /**
      Opens the text file for output. Note that this method 
      need not be explictly executed, since the first execution
@@ -364,8 +1006,25 @@ public class TextFile extends File {
     if (this.isDirectory () ) {
       throw new IOException (this.toString() + " is a directory.");
     }
-    textFileWriter = new FileWriter (this);
-    textFileBufWriter = new BufferedWriter (textFileWriter);
+    int outputCompression = compression;
+    if (outputCompression == COMPRESSION_AUTO 
+        || outputCompression == COMPRESSION_DETECT) {
+      outputCompression = getCompressionForName (fileName);
+    }
+    if (fastOutput) {
+      lineWriter = new LineWriter (openOutputStream (outputCompression), 
+          getEffectiveCharset(), outputBufferSize, outputQueueCapacity);
+    }
+    else
+    if (charset != null 
+        || outputCompression == COMPRESSION_GZIP
+        || outputCompression == COMPRESSION_DEFLATE) {
+      textFileBufWriter = new BufferedWriter (new OutputStreamWriter 
+          (openOutputStream (outputCompression), getEffectiveCharset()));
+    } else {
+      textFileWriter = new FileWriter (this);
+      textFileBufWriter = new BufferedWriter (textFileWriter);
+    }
     // ensureLog();
     // logEvent.setSeverity (LogEvent.NORMAL);
     // logEvent.setMessage (fileName + " opened for output successfully");
@@ -374,6 +1033,26 @@ public class TextFile extends File {
     openAsOutput = true;
   } // end method openForOutput
   
+  /**
+     Opens a stream of bytes to the file, compressing them if requested. 
+    
+     @param type The type of compression to be used for the output.
+   */
+  private OutputStream openOutputStream (int type)
+      throws IOException {
+    OutputStream out = new FileOutputStream (this);
+    if (type == COMPRESSION_GZIP) {
+      return new GZIPOutputStream (out, COMPRESSED_BUFFER_SIZE);
+    }
+    else
+    if (type == COMPRESSION_DEFLATE) {
+      return new DeflaterOutputStream 
+          (new BufferedOutputStream (out, COMPRESSED_BUFFER_SIZE));
+    } else {
+      return out;
+    }
+  }
+  
   /**
      Closes the file, if it is currently open for input or output. 
     
@@ -382,7 +1061,12 @@ public class TextFile extends File {
   public void close() 
       throws IOException {
     if (openAsInput) {
-      textFileBufReader.close ();
+      if (lineReader == null) {
+        textFileBufReader.close ();
+      } else {
+        lineReader.close();
+        lineReader = null;
+      }
       ensureLog();
       logEvent.setSeverity (LogEvent.NORMAL);
       logEvent.setMessage (String.valueOf (lineNumber) 
@@ -391,7 +1075,12 @@ public class TextFile extends File {
       log.recordEvent (logEvent);
     }
     if (openAsOutput) {
-      textFileBufWriter.close();
+      if (lineWriter == null) {
+        textFileBufWriter.close();
+      } else {
+        lineWriter.close();
+        lineWriter = null;
+      }
       ensureLog();
       logEvent.setSeverity (LogEvent.NORMAL);
       logEvent.setMessage (String.valueOf (lineNumber)
@@ -18,6 +18,7 @@ package com.powersurgepub.psutils;
 
   import java.io.*;
   import java.util.*;
+  import java.util.function.*;
   import java.util.prefs.*;
   import javax.swing.*;
 
@@ -802,4 +803,18 @@ public class UserPrefs {
     Logger.getShared().recordEvent (severity, message, dataRelated);
   }
   
+  /**
+     Records an event, building its message only if it will be written.
+    
+     @param severity      the severity of the event
+    
+     @param message       supplies the message to be written to the log
+    
+     @param dataRelated   indicates whether this event is related
+                          to preceding data.
+   */
+  public void log (int severity, Supplier<String> message, boolean dataRelated) {
+    Logger.getShared().recordEvent (severity, message, dataRelated);
+  }
+  
 } // end class UserPrefs